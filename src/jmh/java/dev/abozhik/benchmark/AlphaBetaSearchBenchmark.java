@@ -0,0 +1,68 @@
+package dev.abozhik.benchmark;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.service.AlphaBetaSearch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed-depth search of a 15x15 five-in-a-row middle game with an empty table on every invocation.
+ * The score is searches per second (inverse time to depth) and the nodes counter is nodes per second.
+ * Compare parallelism levels for the speed-up on the machine at hand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlphaBetaSearchBenchmark {
+
+    private static final int SIZE = 15;
+    private static final int WIN_LENGTH = 5;
+    private static final int[] MOVES = {112, 98, 113, 111, 128, 96, 126, 114, 97, 127};
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"4", "5"})
+    private int depth;
+
+    private AlphaBetaSearch search;
+    private byte[] cells;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        search = new AlphaBetaSearch(new SimpleMeterRegistry(), 0, parallelism, 1 << 20);
+        cells = Board.empty(SIZE);
+        for (int i = 0; i < MOVES.length; i++) {
+            Board.place(cells, MOVES[i], i % 2 == 0 ? GamePlayer.X : GamePlayer.O);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.clearTable();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        search.destroy();
+    }
+
+    @Benchmark
+    public int searchToDepth(Nodes nodes) {
+        AlphaBetaSearch.SearchResult result = search.search(cells, SIZE, WIN_LENGTH, TimeUnit.MINUTES.toNanos(1), depth);
+        nodes.nodes += result.nodes();
+        return result.move();
+    }
+}
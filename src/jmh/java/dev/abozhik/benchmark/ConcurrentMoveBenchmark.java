@@ -0,0 +1,99 @@
+package dev.abozhik.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.TicTacToeApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HTTP load test: many clients play random moves on a small set of hot games, so moves conflict,
+ * hit optimistic-lock retries and park request threads in the retry backoff.
+ * Compare the score of threads=platform and threads=virtual.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class ConcurrentMoveBenchmark {
+
+    private static final int HOT_GAMES = 16;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private JsonMapper jsonMapper;
+    private String baseUrl;
+    private AtomicLongArray hotGames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TicTacToeApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:concurrent-move-" + threads,
+                        "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                        "--game.admission.enabled=false",
+                        "--logging.level.root=WARN");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/game";
+        httpClient = HttpClient.newBuilder().executor(Runnable::run).build();
+        jsonMapper = context.getBean(JsonMapper.class);
+
+        hotGames = new AtomicLongArray(HOT_GAMES);
+        for (int i = 0; i < HOT_GAMES; i++) {
+            hotGames.set(i, createGame());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int makeMove() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int slot = random.nextInt(HOT_GAMES);
+        long gameId = hotGames.get(slot);
+        String body = "{\"position\":" + random.nextInt(9) + ",\"requestId\":\"" + UUID.randomUUID() + "\"}";
+
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + gameId + "/move"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        JsonNode json = jsonMapper.readTree(response.body());
+        boolean finished = response.statusCode() == 200
+                ? !"IN_PROGRESS".equals(json.path("status").asText())
+                : "Game is already finished".equals(json.path("message").asText());
+        if (finished) {
+            hotGames.compareAndSet(slot, gameId, createGame());
+        }
+        return response.statusCode();
+    }
+
+    private long createGame() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/new"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        return jsonMapper.readTree(response.body()).path("id").asLong();
+    }
+}
@@ -0,0 +1,69 @@
+package dev.abozhik.benchmark;
+
+import dev.abozhik.TicTacToeApplication;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.service.GameService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameServiceBenchmark {
+
+    // A full game that ends in a draw, so every game takes exactly nine moves
+    private static final int[] DRAW_SEQUENCE = {0, 1, 2, 4, 3, 5, 7, 6, 8};
+
+    private ConfigurableApplicationContext context;
+    private GameService gameService;
+    private Long duplicateGameId;
+    private String duplicateRequestId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TicTacToeApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--logging.level.root=WARN");
+        gameService = context.getBean(GameService.class);
+
+        duplicateGameId = gameService.createGame().getId();
+        duplicateRequestId = UUID.randomUUID().toString();
+        gameService.makeMove(duplicateGameId, 4, GamePlayer.X, duplicateRequestId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Player {
+        private Long gameId;
+        private int move = DRAW_SEQUENCE.length;
+    }
+
+    // Includes creating a new game every nine moves
+    @Benchmark
+    public Game makeMove(Player player) {
+        if (player.move == DRAW_SEQUENCE.length) {
+            player.gameId = gameService.createGame().getId();
+            player.move = 0;
+        }
+        return gameService.makeMove(player.gameId, DRAW_SEQUENCE[player.move++], null, UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public Game duplicateMove() {
+        return gameService.makeMove(duplicateGameId, 4, GamePlayer.X, duplicateRequestId);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.abozhik.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.config.AppConfig;
+import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.converter.GameSnapshotConverter;
+import dev.abozhik.model.entity.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private JsonMapper jsonMapper;
+    private Game game;
+    private GameMessage message;
+    private String gameJson;
+    private byte[] gameSnapshot;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        jsonMapper = new AppConfig().jsonMapper();
+
+        game = new Game(GameStatus.IN_PROGRESS, "XO X O  X", GamePlayer.O);
+        game.setId(42L);
+        game.setVersion(5L);
+        game.setCreationDateTime(LocalDateTime.of(2025, 1, 1, 12, 0));
+
+        message = new GameMessage();
+        message.setId(game.getId());
+        message.setSequence(game.getMoveCount());
+        message.setPosition(8);
+        message.setPlayer(GamePlayer.X);
+
+        gameJson = jsonMapper.writeValueAsString(game);
+        gameSnapshot = GameSnapshotConverter.encode(game);
+    }
+
+    @Benchmark
+    public String serializeGame() throws JsonProcessingException {
+        return jsonMapper.writeValueAsString(game);
+    }
+
+    @Benchmark
+    public String serializeGameMessage() throws JsonProcessingException {
+        return jsonMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public Game deserializeGame() throws JsonProcessingException {
+        return jsonMapper.readValue(gameJson, Game.class);
+    }
+
+    @Benchmark
+    public byte[] encodeGameSnapshot() {
+        return GameSnapshotConverter.encode(game);
+    }
+
+    @Benchmark
+    public Game decodeGameSnapshot() {
+        return GameSnapshotConverter.decode(gameSnapshot);
+    }
+}
@@ -0,0 +1,61 @@
+package dev.abozhik.benchmark;
+
+import dev.abozhik.service.PairingQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue latency of matchmaking: every operation is one player joining the queue and waiting until paired.
+ * Sample mode reports the wait-time percentiles, the timeouts counter how often a player gave up
+ * after 10 ms with nobody to pair with. More buckets (variants x rating buckets) mean fewer partners per bucket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MatchmakingBenchmark {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Param({"1", "4", "16"})
+    private int buckets;
+
+    private final PairingQueue<Integer, Ticket> queue = new PairingQueue<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long timeouts;
+    }
+
+    @Benchmark
+    public boolean joinAndWait(Outcomes outcomes) throws InterruptedException {
+        int bucket = ThreadLocalRandom.current().nextInt(buckets);
+        Ticket ticket = new Ticket();
+        Ticket partner = queue.offer(bucket, ticket);
+        if (partner != null) {
+            partner.matched.countDown();
+            return true;
+        }
+        if (ticket.matched.await(TIMEOUT_NANOS, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        if (queue.cancel(bucket, ticket)) {
+            outcomes.timeouts++;
+            return false;
+        }
+        // taken by a partner right at the timeout
+        ticket.matched.await();
+        return true;
+    }
+
+    private static final class Ticket {
+        private final CountDownLatch matched = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,114 @@
+package dev.abozhik.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.TicTacToeApplication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP load test of the worst case for optimistic locking: every client plays on the same game.
+ * Compare mailbox=false (moves race and retry) with mailbox=true (moves queue in the game's mailbox).
+ * The applied counter is moves per second that changed the game, failed counts moves that ran out of retries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class MoveContentionBenchmark {
+
+    private static final int SIZE = 32;
+
+    @Param({"false", "true"})
+    private boolean mailbox;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private JsonMapper jsonMapper;
+    private String baseUrl;
+    private AtomicLong hotGame;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long applied;
+        public long rejected;
+        public long failed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TicTacToeApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:move-contention-" + mailbox,
+                        "--game.move.mailbox.enabled=" + mailbox,
+                        "--game.move.mailbox.max-depth=64",
+                        "--game.admission.enabled=false",
+                        "--logging.level.root=WARN");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/game";
+        httpClient = HttpClient.newBuilder().executor(Runnable::run).build();
+        jsonMapper = context.getBean(JsonMapper.class);
+        hotGame = new AtomicLong(createGame());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Counter retries = context.getBean(MeterRegistry.class).find("game.move.retries").counter();
+        System.out.println("mailbox=" + mailbox + " optimistic-lock retries: " + (retries != null ? (long) retries.count() : 0));
+        context.close();
+    }
+
+    @Benchmark
+    public int makeMove(Outcomes outcomes) throws Exception {
+        long gameId = hotGame.get();
+        String body = "{\"position\":" + ThreadLocalRandom.current().nextInt(SIZE * SIZE) + ",\"requestId\":\"" + UUID.randomUUID() + "\"}";
+
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + gameId + "/move"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        JsonNode json = jsonMapper.readTree(response.body());
+        boolean finished;
+        if (response.statusCode() == 200) {
+            outcomes.applied++;
+            finished = !"IN_PROGRESS".equals(json.path("status").asText());
+        } else if (response.statusCode() == 400) {
+            outcomes.rejected++;
+            finished = "Game is already finished".equals(json.path("message").asText());
+        } else {
+            outcomes.failed++;
+            finished = false;
+        }
+        if (finished) {
+            hotGame.compareAndSet(gameId, createGame());
+        }
+        return response.statusCode();
+    }
+
+    private long createGame() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/new?size=" + SIZE + "&winLength=" + SIZE))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        return jsonMapper.readTree(response.body()).path("id").asLong();
+    }
+}
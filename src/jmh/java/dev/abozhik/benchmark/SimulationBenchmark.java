@@ -0,0 +1,56 @@
+package dev.abozhik.benchmark;
+
+import dev.abozhik.model.SimulationRequest;
+import dev.abozhik.model.SimulationStrategy;
+import dev.abozhik.service.PerfectPlayAi;
+import dev.abozhik.service.Simulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Self-play throughput: every operation is one game, so the score is games per second (x60 for games per minute).
+ * Compare parallelism levels for the scaling with cores; the GC profiler should show next to no allocation per game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+
+    private static final int GAMES = 1_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"RANDOM", "HEURISTIC", "PERFECT"})
+    private SimulationStrategy strategy;
+
+    private Simulator simulator;
+    private SimulationRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        simulator = new Simulator(new PerfectPlayAi(meterRegistry, ""), meterRegistry, parallelism, 1024, GAMES * 9, Long.MAX_VALUE / 2);
+        request = new SimulationRequest();
+        request.setX(strategy);
+        request.setO(SimulationStrategy.RANDOM);
+        request.setGames(GAMES);
+        request.setSeed(42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simulator.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public long simulate() {
+        return simulator.simulate(request).getMoves();
+    }
+}
@@ -0,0 +1,238 @@
+package dev.abozhik.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.TicTacToeApplication;
+import dev.abozhik.model.constants.GameConstants;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates concurrent players against the game API. Every player creates games, subscribes to
+ * /topic/game/{id} over STOMP and plays random legal moves for both sides over HTTP, retrying a share
+ * of the moves with the same requestId. Prints HdrHistogram percentiles for move latency, duplicate
+ * request latency and the delay until the resulting state is delivered over STOMP.
+ * <p>
+ * Options: --players=50 --duration=60 (seconds) --duplicate-ratio=0.1 --target=http://localhost:8080.
+ * Without --target an instance with an in-memory H2 database is started on a random port.
+ */
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final WebSocketStompClient stompClient =
+            new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+
+    private final Histogram moveLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram duplicateLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram broadcastLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder games = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder duplicateMismatches = new LongAdder();
+
+    private final String target;
+    private final int players;
+    private final long durationNanos;
+    private final double duplicateRatio;
+
+    private LoadGenerator(String target, int players, long durationSeconds, double duplicateRatio) {
+        this.target = target;
+        this.players = players;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+
+        ConfigurableApplicationContext context = null;
+        String target = options.get("target");
+        if (target == null) {
+            context = new SpringApplicationBuilder(TicTacToeApplication.class)
+                    .run("--server.port=0", "--game.admission.enabled=false", "--logging.level.root=WARN");
+            target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            new LoadGenerator(target,
+                    Integer.parseInt(options.getOrDefault("players", "50")),
+                    Long.parseLong(options.getOrDefault("duration", "60")),
+                    Double.parseDouble(options.getOrDefault("duplicate-ratio", "0.1"))).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("Running %d players against %s for %ds%n", players, target, TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        long startTime = System.nanoTime();
+        long deadline = startTime + durationNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                executor.submit(() -> play(deadline));
+            }
+        }
+        report(System.nanoTime() - startTime);
+    }
+
+    private Void play(long deadline) throws Exception {
+        StompSession session = stompClient.connectAsync(target + "/ws", new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+        try {
+            while (System.nanoTime() < deadline) {
+                playGame(session, deadline);
+            }
+        } finally {
+            session.disconnect();
+        }
+        return null;
+    }
+
+    private void playGame(StompSession session, long deadline) throws IOException, InterruptedException {
+        JsonNode game = post("/api/game/new", null).body();
+        long gameId = game.path("id").asLong();
+        games.increment();
+
+        // Sequence number of a move -> time it was sent
+        Map<Integer, Long> sentAt = new ConcurrentHashMap<>();
+        StompSession.Subscription subscription = session.subscribe("/topic/game/" + gameId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                long receivedAt = System.nanoTime();
+                try {
+                    for (JsonNode move : jsonMapper.readTree((byte[]) payload)) {
+                        Long sent = sentAt.remove(move.path("sequence").asInt());
+                        if (sent != null) {
+                            record(broadcastLatency, receivedAt - sent);
+                        }
+                    }
+                } catch (IOException e) {
+                    errors.increment();
+                }
+            }
+        });
+
+        try {
+            String board = GameConstants.EMPTY_BOARD;
+            while ("IN_PROGRESS".equals(game.path("status").asText()) && System.nanoTime() < deadline) {
+                int position = randomFreeCell(board);
+                String requestId = UUID.randomUUID().toString();
+                String body = "{\"position\":" + position + ",\"requestId\":\"" + requestId + "\"}";
+
+                long start = System.nanoTime();
+                sentAt.put(game.path("moveCount").asInt() + 1, start);
+                Response response = post("/api/game/" + gameId + "/move", body);
+                record(moveLatency, System.nanoTime() - start);
+                if (response.status() != 200) {
+                    errors.increment();
+                    return;
+                }
+                game = response.body();
+
+                if (ThreadLocalRandom.current().nextDouble() < duplicateRatio) {
+                    long retryStart = System.nanoTime();
+                    Response retry = post("/api/game/" + gameId + "/move", body);
+                    record(duplicateLatency, System.nanoTime() - retryStart);
+                    if (retry.status() != 200 || !retry.body().path("board").equals(game.path("board"))) {
+                        duplicateMismatches.increment();
+                    }
+                }
+
+                board = game.path("board").asText();
+            }
+        } finally {
+            subscription.unsubscribe();
+        }
+    }
+
+    private Response post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(target + path));
+        if (body != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        return new Response(response.statusCode(), jsonMapper.readTree(response.body()));
+    }
+
+    private static int randomFreeCell(String board) {
+        int position;
+        do {
+            position = ThreadLocalRandom.current().nextInt(board.length());
+        } while (board.charAt(position) != ' ');
+        return position;
+    }
+
+    private static void record(Histogram histogram, long nanos) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nGames: %d, moves: %d (%.1f/s), errors: %d, duplicate mismatches: %d%n",
+                games.sum(), moveLatency.getTotalCount(), moveLatency.getTotalCount() / seconds,
+                errors.sum(), duplicateMismatches.sum());
+        System.out.printf("%n%-12s %10s %10s %10s %10s %10s %10s%n", "latency(ms)", "count", "p50", "p90", "p99", "p99.9", "max");
+        printRow("move", moveLatency);
+        printRow("duplicate", duplicateLatency);
+        printRow("broadcast", broadcastLatency);
+
+        System.out.println("\nMove latency distribution (ms):");
+        moveLatency.outputPercentileDistribution(System.out, 1000.0);
+        System.out.println("\nBroadcast delivery latency distribution (ms):");
+        broadcastLatency.outputPercentileDistribution(System.out, 1000.0);
+    }
+
+    private static void printRow(String name, Histogram histogram) {
+        System.out.printf("%-12s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private record Response(int status, JsonNode body) {}
+}
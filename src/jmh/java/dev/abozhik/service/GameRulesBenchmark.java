@@ -0,0 +1,124 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move cost across board sizes. checkWinner is the incremental check through the last stone,
+ * scanWinner the full-board scan it replaced; only the latter should grow with the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameRulesBenchmark {
+
+    private static final int BOARDS = 256;
+
+    // size:winLength
+    @Param({"3:3", "15:5", "19:5", "32:5"})
+    private String variant;
+
+    // share of the cells already taken; stones that would end the game are skipped
+    @Param({"0.1", "0.5"})
+    private double fill;
+
+    private int size;
+    private int winLength;
+    private final byte[][] cells = new byte[BOARDS][];
+    private final int[] positions = new int[BOARDS];
+    private final GamePlayer[] players = new GamePlayer[BOARDS];
+    private final Game game = new Game();
+    private int index;
+
+    @Setup
+    public void setUp() {
+        size = Integer.parseInt(variant.substring(0, variant.indexOf(':')));
+        winLength = Integer.parseInt(variant.substring(variant.indexOf(':') + 1));
+        game.setBoardSize(size);
+        game.setWinLength(winLength);
+
+        Random random = new Random(42);
+        for (int i = 0; i < BOARDS; i++) {
+            byte[] board = Board.empty(size);
+            int stones = playout(random, board, (int) (fill * board.length));
+            cells[i] = board;
+            players[i] = stones % 2 == 0 ? GamePlayer.X : GamePlayer.O;
+            positions[i] = randomFreeCell(random, board);
+        }
+    }
+
+    @Benchmark
+    public GameStatus applyMove() {
+        int i = next();
+        byte[] board = cells[i];
+        game.setCells(board);
+        game.setMoveCount(0);
+        game.setStatus(GameStatus.IN_PROGRESS);
+        game.setCurrentPlayer(players[i]);
+        GameRules.validateMove(game, positions[i], players[i]);
+        GameRules.applyMove(game, positions[i]);
+        board[positions[i]] = Board.EMPTY;
+        return game.getStatus();
+    }
+
+    @Benchmark
+    public boolean checkWinner() {
+        int i = next();
+        byte[] board = cells[i];
+        Board.place(board, positions[i], players[i]);
+        boolean won = Board.isWinningMove(board, size, winLength, positions[i]);
+        board[positions[i]] = Board.EMPTY;
+        return won;
+    }
+
+    @Benchmark
+    public boolean scanWinner() {
+        int i = next();
+        byte[] board = cells[i];
+        Board.place(board, positions[i], players[i]);
+        boolean won = false;
+        for (int position = 0; position < board.length && !won; position++) {
+            won = board[position] == Board.stone(players[i]) && Board.isWinningMove(board, size, winLength, position);
+        }
+        board[positions[i]] = Board.EMPTY;
+        return won;
+    }
+
+    private int next() {
+        index = (index + 1) & (BOARDS - 1);
+        return index;
+    }
+
+    private int playout(Random random, byte[] board, int stones) {
+        GamePlayer player = GamePlayer.X;
+        int placed = 0;
+        for (int attempt = 0; placed < stones && attempt < stones * 10; attempt++) {
+            int position = randomFreeCell(random, board);
+            Board.place(board, position, player);
+            if (Board.isWinningMove(board, size, winLength, position)) {
+                board[position] = Board.EMPTY;
+                continue;
+            }
+            placed++;
+            player = player == GamePlayer.X ? GamePlayer.O : GamePlayer.X;
+        }
+        return placed;
+    }
+
+    private static int randomFreeCell(Random random, byte[] board) {
+        int position;
+        do {
+            position = random.nextInt(board.length);
+        } while (Board.isOccupied(board, position));
+        return position;
+    }
+}
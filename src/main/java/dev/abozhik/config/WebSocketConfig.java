@@ -1,25 +1,148 @@
 package dev.abozhik.config;
 
+import dev.abozhik.service.AdmissionControl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final String TICKET_HEADER = "ticket";
+
+    private final boolean relayEnabled;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final String relayVirtualHost;
+    private final AdmissionControl admissionControl;
+
+    public WebSocketConfig(AdmissionControl admissionControl,
+                           @Value("${game.broker.relay.enabled:false}") boolean relayEnabled,
+                           @Value("${game.broker.relay.host:localhost}") String relayHost,
+                           @Value("${game.broker.relay.port:61613}") int relayPort,
+                           @Value("${game.broker.relay.login:guest}") String relayLogin,
+                           @Value("${game.broker.relay.passcode:guest}") String relayPasscode,
+                           @Value("${game.broker.relay.virtual-host:}") String relayVirtualHost) {
+        this.relayEnabled = relayEnabled;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayVirtualHost = relayVirtualHost;
+        this.admissionControl = admissionControl;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (relayEnabled) {
+            // Every node forwards subscriptions and broadcasts to the external broker,
+            // so a subscriber sees moves made on any node
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // Share user sessions between nodes, so a match is announced wherever the player is connected
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+        // Moves are sent to /app/game/{id}/move; errors come back on /user/queue/errors
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+    }
+
+    /**
+     * A connection that sends the ticket of a matchmaking request made over HTTP on CONNECT takes that ticket
+     * as its name, so the match is announced on its /user/queue/matches. The ticket is a secret handed out by the
+     * server, so holding it proves the request was made by this client; a name chosen by the client never is.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String ticket = accessor.getFirstNativeHeader(TICKET_HEADER);
+                    if (ticket != null && !ticket.isBlank()) {
+                        accessor.setUser(new ConnectionPrincipal(ticket));
+                    }
+                }
+                return message;
+            }
+        });
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // Frames of one connection are handled in the order they were sent, so a subscription
+        // is active before the moves that follow it and a client's moves are applied in order
+        registry.setPreserveReceiveOrder(true);
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new DefaultHandshakeHandler() {
+                    // Every connection gets a random name of its own, so user destinations such as
+                    // /user/queue/errors and /user/queue/matches reach only that connection
+                    @Override
+                    protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                                      Map<String, Object> attributes) {
+                        return new ConnectionPrincipal(UUID.randomUUID().toString());
+                    }
+                })
+                .addInterceptors(new HandshakeInterceptor() {
+                    // Messages count against the client that opened the connection, told apart like HTTP requests
+                    @Override
+                    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                        if (request instanceof ServletServerHttpRequest servletRequest) {
+                            attributes.put(AdmissionControl.CLIENT_ATTRIBUTE, admissionControl.clientOf(servletRequest.getServletRequest()));
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                               WebSocketHandler wsHandler, Exception exception) {
+                    }
+                })
                 .withSockJS();
     }
-} 
\ No newline at end of file
+
+    private record ConnectionPrincipal(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
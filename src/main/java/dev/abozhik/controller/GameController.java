@@ -1,15 +1,33 @@
 package dev.abozhik.controller;
 
 import dev.abozhik.exception.GameException;
+import dev.abozhik.model.BatchMoveRequest;
+import dev.abozhik.model.GamePage;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
 import dev.abozhik.model.MoveRequest;
+import dev.abozhik.model.MoveResult;
+import dev.abozhik.model.constants.GameConstants;
 import dev.abozhik.model.entity.Game;
+import dev.abozhik.service.AdmissionControl;
+import dev.abozhik.service.GameMailbox;
+import dev.abozhik.service.GameResponseCache;
 import dev.abozhik.service.GameService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,42 +36,131 @@ import java.util.List;
 public class GameController {
 
     private final GameService gameService;
+    private final GameMailbox gameMailbox;
+    private final AdmissionControl admissionControl;
+    private final int maxBatchSize;
 
-    public GameController(GameService gameService) {
+    public GameController(GameService gameService,
+                          GameMailbox gameMailbox,
+                          AdmissionControl admissionControl,
+                          @Value("${game.move.batch.max-size:500}") int maxBatchSize) {
         this.gameService = gameService;
+        this.gameMailbox = gameMailbox;
+        this.admissionControl = admissionControl;
+        this.maxBatchSize = maxBatchSize;
     }
 
-    @Operation(summary = "List all games", description = "Returns a list of all games")
+    @Operation(summary = "List games", description = "Returns a page of games, newest first. Pass nextCursor of the previous page as cursor to get the next one")
     @GetMapping
-    public ResponseEntity<List<Game>> listGames() {
-        return ResponseEntity.ok(gameService.getAllGames());
+    public ResponseEntity<GamePage> listGames(
+            @Parameter(description = "Only games with this status") @RequestParam(required = false) GameStatus status,
+            @Parameter(description = "Only games created at or after this time", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Only games created before this time", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "Page size (1-100)", example = "20") @RequestParam(defaultValue = "" + GameConstants.DEFAULT_PAGE_SIZE) int size) {
+        if (size < 1 || size > GameConstants.MAX_PAGE_SIZE) {
+            throw new GameException("Invalid page size. Size must be between 1 and " + GameConstants.MAX_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(gameService.getGames(status, createdFrom, createdTo, cursor, size));
+    }
+
+    @Operation(summary = "Export games", description = "Streams all matching games as newline-delimited JSON, oldest first")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportGames(
+            @Parameter(description = "Only games with this status") @RequestParam(required = false) GameStatus status,
+            @Parameter(description = "Only games created at or after this time", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @Parameter(description = "Only games created before this time", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> gameService.exportGames(status, createdFrom, createdTo, out));
     }
 
-    @Operation(summary = "Create a new game", description = "Creates a new Tic Tac Toe game and returns the game object")
+    @Operation(summary = "Create a new game", description = "Creates a new game on a size x size board won by winLength stones in a row and returns the game object. " +
+            "With aiPlayer set the server plays that side")
     @PostMapping("/new")
-    public ResponseEntity<Game> createGame() {
-        return ResponseEntity.ok(gameService.createGame());
+    public ResponseEntity<Game> createGame(
+            @Parameter(description = "Board size (3-32)", example = "3") @RequestParam(defaultValue = "" + GameConstants.DEFAULT_BOARD_SIZE) int size,
+            @Parameter(description = "Stones in a row needed to win (3-size)", example = "3") @RequestParam(defaultValue = "" + GameConstants.DEFAULT_WIN_LENGTH) int winLength,
+            @Parameter(description = "Side played by the server, which answers every move: perfect play on 3x3, a timed alpha-beta search on larger boards", example = "O")
+            @RequestParam(required = false) GamePlayer aiPlayer,
+            HttpServletRequest request) {
+        Game game = admissionControl.call(admissionControl.clientOf(request), AdmissionControl.Limit.CREATE, () ->
+                gameService.createGame(size, winLength, aiPlayer));
+        return ResponseEntity.ok(game);
     }
 
-    @Operation(summary = "Get game", description = "Returns the game object for a specific game")
-    @GetMapping("/{id}")
-    public ResponseEntity<Game> getGame(
+    @Operation(summary = "Get game", description = "Returns the game object for a specific game. " +
+            "Its moveCount is the sequence of the last move on /topic/game/{id}, so this is also how a subscriber resyncs after a gap. " +
+            "The ETag changes with every move; polling with If-None-Match returns 304 while the game is unchanged")
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Game.class)))
+    @ApiResponse(responseCode = "304", description = "Game unchanged since the ETag in If-None-Match", content = @Content)
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getGame(
             @Parameter(description = "ID of the game to retrieve", example = "1") @PathVariable Long id) {
-        return ResponseEntity.ok(gameService.getGame(id));
+        GameResponseCache.Entry game = gameService.getGameResponse(id);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (game.eTag() != null) {
+            // If-None-Match is checked against it when the response is written
+            response.eTag(game.eTag());
+        }
+        return response.body(game.json());
+    }
+
+    @Operation(summary = "Get move history", description = "Streams the moves of a game as newline-delimited JSON, in play order, AI moves included")
+    @GetMapping(value = "/{id}/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getHistory(
+            @Parameter(description = "ID of the game", example = "1") @PathVariable Long id) {
+        gameService.getGame(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> gameService.exportHistory(id, out));
     }
 
-    @Operation(summary = "Make a move", description = "Makes a move in the specified game at the given position")
+    @Operation(summary = "Replay game", description = "Rebuilds the game from its last snapshot and move history, as it was after the given number of moves")
+    @GetMapping("/{id}/replay")
+    public ResponseEntity<Game> replayGame(
+            @Parameter(description = "ID of the game", example = "1") @PathVariable Long id,
+            @Parameter(description = "Number of moves to replay, all by default", example = "3") @RequestParam(required = false) Integer moveNumber) {
+        return ResponseEntity.ok(gameService.replayGame(id, moveNumber));
+    }
+
+    @Operation(summary = "Make a move", description = "Makes a move in the specified game at the given position. " +
+            "Moves on the same game are queued and applied one at a time")
     @PostMapping("/{id}/move")
     public ResponseEntity<Game> makeMove(
             @Parameter(description = "ID of the game to make a move in", example = "1") @PathVariable Long id,
-            @Parameter(description = "Move request containing position, player, and request ID") @RequestBody MoveRequest moveRequest) {
+            @Parameter(description = "Move request containing position, player, and request ID") @RequestBody MoveRequest moveRequest,
+            HttpServletRequest request) {
         if (moveRequest == null) {
             throw new GameException("Move request cannot be null");
         }
-        if (moveRequest.getPosition() < 0 || moveRequest.getPosition() > 8) {
-            throw new GameException("Invalid position. Position must be between 0 and 8");
-        }
-        Game game = gameService.makeMove(id, moveRequest.getPosition(), moveRequest.getPlayer(), moveRequest.getRequestId());
+        // a move waiting in the mailbox holds no global slot
+        admissionControl.admit(admissionControl.clientOf(request), AdmissionControl.Limit.MOVE, 1);
+        Game game = gameMailbox.call(id, () -> admissionControl.run(AdmissionControl.Limit.MOVE, () ->
+                gameService.makeMove(id, moveRequest.getPosition(), moveRequest.getPlayer(), moveRequest.getRequestId())));
         return ResponseEntity.ok(game);
     }
-} 
\ No newline at end of file
+
+    @Operation(summary = "Make moves in batch", description = "Applies moves to one or more games in a single transaction, in request order. " +
+            "Returns one result per move; a rejected move does not affect the others. " +
+            "The batch is queued behind the moves on each of its games and counts as one request per move against the rate limit")
+    @PostMapping("/moves")
+    public ResponseEntity<List<MoveResult>> makeMoves(
+            @Parameter(description = "Moves, each with game ID, position, player and request ID") @RequestBody List<BatchMoveRequest> moves,
+            HttpServletRequest request) {
+        if (moves == null || moves.isEmpty()) {
+            throw new GameException("Move batch cannot be empty");
+        }
+        if (moves.size() > maxBatchSize) {
+            throw new GameException("Move batch too large. At most " + maxBatchSize + " moves are allowed");
+        }
+        List<Long> gameIds = moves.stream().map(BatchMoveRequest::getGameId).toList();
+        admissionControl.admit(admissionControl.clientOf(request), AdmissionControl.Limit.MOVE, moves.size());
+        return ResponseEntity.ok(gameMailbox.callAll(gameIds, () -> admissionControl.run(AdmissionControl.Limit.MOVE, () ->
+                gameService.makeMoves(moves))));
+    }
+}
@@ -0,0 +1,82 @@
+package dev.abozhik.controller;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.exception.TooManyRequestsException;
+import dev.abozhik.model.ErrorResponse;
+import dev.abozhik.model.MatchRequest;
+import dev.abozhik.model.MoveRequest;
+import dev.abozhik.service.AdmissionControl;
+import dev.abozhik.service.GameMailbox;
+import dev.abozhik.service.GameService;
+import dev.abozhik.service.Matchmaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * Moves sent over the open STOMP connection to /app/game/{id}/move. The new state reaches the client
+ * through its /topic/game/{id} subscription like any other move; errors go only to the sender's /user/queue/errors.
+ * Matchmaking requests sent to /app/matchmaking are answered on /user/queue/matches.
+ * Both count against the same admission limits as over HTTP, per player or, for anonymous connections, per session.
+ */
+@Slf4j
+@Controller
+public class GameMessageController {
+
+    private final GameService gameService;
+    private final GameMailbox gameMailbox;
+    private final Matchmaker matchmaker;
+    private final AdmissionControl admissionControl;
+
+    public GameMessageController(GameService gameService, GameMailbox gameMailbox, Matchmaker matchmaker,
+                                 AdmissionControl admissionControl) {
+        this.gameService = gameService;
+        this.gameMailbox = gameMailbox;
+        this.matchmaker = matchmaker;
+        this.admissionControl = admissionControl;
+    }
+
+    @MessageMapping("/game/{id}/move")
+    public void makeMove(@DestinationVariable Long id, @Payload MoveRequest moveRequest, SimpMessageHeaderAccessor headers) {
+        admissionControl.admit(admissionControl.clientOf(headers), AdmissionControl.Limit.MOVE, 1);
+        gameMailbox.call(id, () -> admissionControl.run(AdmissionControl.Limit.MOVE, () ->
+                gameService.makeMove(id, moveRequest.getPosition(), moveRequest.getPlayer(), moveRequest.getRequestId())));
+    }
+
+    /**
+     * Queues a ticket owned by this connection for a match, announced on its /user/queue/matches.
+     */
+    @MessageMapping("/matchmaking")
+    public void enqueue(@Payload MatchRequest matchRequest, Principal connection, SimpMessageHeaderAccessor headers) {
+        String client = admissionControl.clientOf(headers);
+        admissionControl.call(client, AdmissionControl.Limit.CREATE, () ->
+                matchmaker.enqueue(connection.getName(), client, matchRequest));
+    }
+
+    @MessageExceptionHandler(GameException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleGameException(GameException ex) {
+        return new ErrorResponse(ex.getMessage(), "Game Error", HttpStatus.BAD_REQUEST.value());
+    }
+
+    @MessageExceptionHandler(TooManyRequestsException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleTooManyRequestsException(TooManyRequestsException ex) {
+        return new ErrorResponse(ex.getMessage(), "Too Many Requests", HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    @MessageExceptionHandler(Exception.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleGenericException(Exception ex) {
+        log.warn("STOMP move failed", ex);
+        return new ErrorResponse("An unexpected error occurred", "Internal Server Error", HttpStatus.INTERNAL_SERVER_ERROR.value());
+    }
+}
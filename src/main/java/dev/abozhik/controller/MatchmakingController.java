@@ -0,0 +1,73 @@
+package dev.abozhik.controller;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.MatchRequest;
+import dev.abozhik.model.MatchResult;
+import dev.abozhik.model.MatchStatus;
+import dev.abozhik.service.AdmissionControl;
+import dev.abozhik.service.Matchmaker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/matchmaking")
+@Tag(name = "Matchmaking Controller", description = "APIs for finding an opponent")
+public class MatchmakingController {
+
+    private final Matchmaker matchmaker;
+    private final AdmissionControl admissionControl;
+
+    public MatchmakingController(Matchmaker matchmaker, AdmissionControl admissionControl) {
+        this.matchmaker = matchmaker;
+        this.admissionControl = admissionControl;
+    }
+
+    @Operation(summary = "Find an opponent", description = "Puts the player in the matchmaking queue. Returns MATCHED with the new game " +
+            "when an opponent was already waiting, otherwise WAITING with a secret ticket; the match can then be read with " +
+            "the ticket, and is announced on /user/queue/matches of the STOMP connection that sent it as its ticket header. " +
+            "A player is never paired with itself, nor with another request from the same client")
+    @PostMapping
+    public ResponseEntity<MatchResult> enqueue(
+            @Parameter(description = "Player ID, board variant and optional rating") @RequestBody MatchRequest matchRequest,
+            HttpServletRequest request) {
+        if (matchRequest == null) {
+            throw new GameException("Match request cannot be null");
+        }
+        String ticket = UUID.randomUUID().toString();
+        String client = admissionControl.clientOf(request);
+        MatchResult result = admissionControl.call(client, AdmissionControl.Limit.CREATE, () ->
+                matchmaker.enqueue(ticket, client, matchRequest));
+        if (result.getStatus() == MatchStatus.WAITING) {
+            result.setTicket(ticket);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Check a request", description = "Returns WAITING while the player is queued, then MATCHED with the game, " +
+            "EXPIRED or CANCELLED. Kept for game.matchmaking.result-ttl after the request ended")
+    @GetMapping("/{ticket}")
+    public ResponseEntity<MatchResult> status(
+            @Parameter(description = "Ticket returned when the player was queued") @PathVariable String ticket) {
+        MatchResult result = matchmaker.status(ticket);
+        if (result == null) {
+            throw new GameException("No matchmaking request with this ticket");
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Leave the queue", description = "Takes a waiting player out of the matchmaking queue")
+    @DeleteMapping("/{ticket}")
+    public ResponseEntity<Void> cancel(
+            @Parameter(description = "Ticket returned when the player was queued") @PathVariable String ticket) {
+        if (!matchmaker.cancel(ticket)) {
+            throw new GameException("Player is not waiting for an opponent");
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
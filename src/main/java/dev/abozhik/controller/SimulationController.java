@@ -0,0 +1,69 @@
+package dev.abozhik.controller;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.SimulationRequest;
+import dev.abozhik.model.SimulationResult;
+import dev.abozhik.model.constants.GameConstants;
+import dev.abozhik.service.AdmissionControl;
+import dev.abozhik.service.Simulator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/simulation")
+@ConditionalOnProperty(name = "game.simulation.enabled", havingValue = "true")
+@Tag(name = "Simulation Controller", description = "APIs for evaluating AI strategies in self-play, enabled with game.simulation.enabled")
+public class SimulationController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final Simulator simulator;
+    private final AdmissionControl admissionControl;
+
+    public SimulationController(Simulator simulator, AdmissionControl admissionControl) {
+        this.simulator = simulator;
+        this.admissionControl = admissionControl;
+    }
+
+    @Operation(summary = "Simulate games", description = "Plays the given number of games between two strategies in parallel, " +
+            "without storing them, and returns the win/draw statistics")
+    @PostMapping
+    public ResponseEntity<SimulationResult> simulate(
+            @Parameter(description = "Strategies, board variant, number of games and optional seed") @RequestBody SimulationRequest simulationRequest,
+            HttpServletRequest request) {
+        if (simulationRequest == null) {
+            throw new GameException("Simulation request cannot be null");
+        }
+        return ResponseEntity.ok(admissionControl.call(admissionControl.clientOf(request), AdmissionControl.Limit.SIMULATE, () ->
+                simulator.simulate(simulationRequest)));
+    }
+
+    @Operation(summary = "Run a tournament", description = "Plays every strategy against every strategy with each side " +
+            "and streams one CSV row of statistics per pairing as it finishes. The whole tournament is one simulation " +
+            "for the game and time limits")
+    @GetMapping(value = "/tournament", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> tournament(
+            @Parameter(description = "Board size (3-32)", example = "3") @RequestParam(defaultValue = "" + GameConstants.DEFAULT_BOARD_SIZE) int size,
+            @Parameter(description = "Stones in a row needed to win (3-size)", example = "3") @RequestParam(defaultValue = "" + GameConstants.DEFAULT_WIN_LENGTH) int winLength,
+            @Parameter(description = "Games per pairing", example = "100000") @RequestParam(defaultValue = "10000") long games,
+            @Parameter(description = "Seed of the random strategies", example = "42") @RequestParam(required = false) Long seed,
+            HttpServletRequest request) {
+        List<SimulationRequest> pairings = simulator.tournament(size, winLength, games, seed);
+        admissionControl.admit(admissionControl.clientOf(request), AdmissionControl.Limit.SIMULATE, 1);
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .body(out -> admissionControl.run(AdmissionControl.Limit.SIMULATE, () -> {
+                    simulator.exportCsv(pairings, out);
+                    return null;
+                }));
+    }
+}
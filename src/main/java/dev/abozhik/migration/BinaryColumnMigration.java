@@ -0,0 +1,112 @@
+package dev.abozhik.migration;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a text column into a binary column added next to it, row by row in JDBC batches.
+ * Rows whose value cannot be converted fail the change set, unless the table only holds purgeable data,
+ * in which case they are deleted.
+ */
+@Slf4j
+abstract class BinaryColumnMigration implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_KEYS = 20;
+
+    private final String table;
+    private final String keyColumn;
+    private final String sourceColumn;
+    private final String targetColumn;
+    private final boolean purgeable;
+    private int converted;
+    private int deleted;
+
+    BinaryColumnMigration(String table, String keyColumn, String sourceColumn, String targetColumn, boolean purgeable) {
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.sourceColumn = sourceColumn;
+        this.targetColumn = targetColumn;
+        this.purgeable = purgeable;
+    }
+
+    /**
+     * @return the binary value, or null when the row cannot be converted
+     */
+    abstract byte[] convert(String value);
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        String select = "SELECT " + keyColumn + ", " + sourceColumn + " FROM " + table;
+        String update = "UPDATE " + table + " SET " + targetColumn + " = ? WHERE " + keyColumn + " = ?";
+        String delete = "DELETE FROM " + table + " WHERE " + keyColumn + " = ?";
+        List<Object> unconvertible = new ArrayList<>();
+        try (PreparedStatement selectStatement = connection.prepareStatement(select);
+             PreparedStatement updateStatement = connection.prepareStatement(update);
+             PreparedStatement deleteStatement = connection.prepareStatement(delete);
+             ResultSet rows = selectStatement.executeQuery()) {
+            while (rows.next()) {
+                Object key = rows.getObject(1);
+                byte[] value = convert(rows.getString(2));
+                if (value == null && !purgeable) {
+                    unconvertible.add(key);
+                    continue;
+                }
+                if (value == null) {
+                    log.warn("Deleting {} row {}: {} cannot be converted", table, key, sourceColumn);
+                    deleteStatement.setObject(1, key);
+                    deleteStatement.addBatch();
+                    deleted++;
+                    continue;
+                }
+                updateStatement.setBytes(1, value);
+                updateStatement.setObject(2, key);
+                updateStatement.addBatch();
+                if (++converted % BATCH_SIZE == 0) {
+                    updateStatement.executeBatch();
+                }
+            }
+            if (!unconvertible.isEmpty()) {
+                throw new CustomChangeException(unconvertible.size() + " " + table + " rows have a " + sourceColumn
+                        + " that cannot be converted, fix or remove them and run the migration again: "
+                        + keyColumn + " in " + unconvertible.subList(0, Math.min(unconvertible.size(), MAX_REPORTED_KEYS)));
+            }
+            updateStatement.executeBatch();
+            deleteStatement.executeBatch();
+        } catch (CustomChangeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CustomChangeException("Failed to convert " + table + "." + sourceColumn, e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Converted " + converted + " " + table + " rows, deleted " + deleted;
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
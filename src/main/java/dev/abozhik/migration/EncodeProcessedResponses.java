@@ -0,0 +1,39 @@
+package dev.abozhik.migration;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dev.abozhik.model.Board;
+import dev.abozhik.model.converter.GameSnapshotConverter;
+import dev.abozhik.model.entity.Game;
+
+/**
+ * Replaces JSON responses with binary snapshots. Responses stored before boards had a size
+ * carry neither boardSize nor winLength; those are classic games, sized from the board.
+ * Responses that cannot be read are deleted: they are only kept for replays and purged after a day anyway.
+ */
+public class EncodeProcessedResponses extends BinaryColumnMigration {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    public EncodeProcessedResponses() {
+        super("processed_request", "request_id", "response", "packed_response", true);
+    }
+
+    @Override
+    byte[] convert(String response) {
+        try {
+            Game game = jsonMapper.readValue(response, Game.class);
+            if (game.getBoardSize() == 0) {
+                game.setBoardSize(Board.sizeOf(game.getBoard()));
+                game.setWinLength(game.getBoardSize());
+            }
+            return GameSnapshotConverter.encode(game);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.abozhik.migration;
+
+import dev.abozhik.model.Board;
+
+/**
+ * Packs the text boards of all games. A board that cannot be read fails the migration, as games are never deleted.
+ */
+public class PackGameBoards extends BinaryColumnMigration {
+
+    public PackGameBoards() {
+        super("game", "id", "board", "packed_board", false);
+    }
+
+    @Override
+    byte[] convert(String board) {
+        try {
+            return Board.pack(Board.fromString(board));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.abozhik.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Schema(description = "A move in a batch, addressed to a specific game")
+public class BatchMoveRequest extends MoveRequest {
+
+    @Schema(description = "ID of the game to make the move in", example = "1")
+    private Long gameId;
+}
@@ -0,0 +1,141 @@
+package dev.abozhik.model;
+
+/**
+ * Square board of any size stored as one byte per cell, row by row: 0 is empty, 1 is X, 2 is O.
+ * Win detection is incremental: only the four lines through the last placed stone are walked,
+ * at most winLength - 1 cells in each direction, so the cost does not depend on the board size.
+ * For storage the cells are packed base-3, five to a byte, behind a one-byte board size header.
+ */
+public final class Board {
+    public static final byte EMPTY = 0;
+    public static final byte X = 1;
+    public static final byte O = 2;
+
+    // row, column steps of the four line directions: horizontal, vertical, diagonal, anti-diagonal
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    private static final int CELLS_PER_BYTE = 5;
+    private static final int[] POWERS = {1, 3, 9, 27, 81};
+    // UNPACKED[b * 5 + i] is the i-th cell held in packed byte b
+    private static final byte[] UNPACKED = new byte[243 * CELLS_PER_BYTE];
+
+    static {
+        for (int b = 0; b < 243; b++) {
+            for (int i = 0; i < CELLS_PER_BYTE; i++) {
+                UNPACKED[b * CELLS_PER_BYTE + i] = (byte) (b / POWERS[i] % 3);
+            }
+        }
+    }
+
+    private Board() {}
+
+    public static byte[] empty(int size) {
+        return new byte[size * size];
+    }
+
+    public static byte stone(GamePlayer player) {
+        return player == GamePlayer.X ? X : O;
+    }
+
+    public static boolean isOccupied(byte[] cells, int position) {
+        return cells[position] != EMPTY;
+    }
+
+    public static void place(byte[] cells, int position, GamePlayer player) {
+        cells[position] = stone(player);
+    }
+
+    public static boolean isWinningMove(byte[] cells, int size, int winLength, int position) {
+        byte stone = cells[position];
+        int row = position / size;
+        int column = position % size;
+        for (int[] direction : DIRECTIONS) {
+            int length = 1
+                    + run(cells, size, winLength, stone, row, column, direction[0], direction[1])
+                    + run(cells, size, winLength, stone, row, column, -direction[0], -direction[1]);
+            if (length >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int run(byte[] cells, int size, int winLength, byte stone, int row, int column, int rowStep, int columnStep) {
+        int count = 0;
+        int r = row + rowStep;
+        int c = column + columnStep;
+        while (count < winLength - 1 && r >= 0 && r < size && c >= 0 && c < size && cells[r * size + c] == stone) {
+            count++;
+            r += rowStep;
+            c += columnStep;
+        }
+        return count;
+    }
+
+    public static int sizeOf(String board) {
+        int size = board != null ? (int) Math.sqrt(board.length()) : 0;
+        if (size == 0 || size * size != board.length()) {
+            throw new IllegalArgumentException("Board must be a non-empty square");
+        }
+        return size;
+    }
+
+    public static int countStones(byte[] cells) {
+        int count = 0;
+        for (byte cell : cells) {
+            if (cell != EMPTY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static byte[] fromString(String board) {
+        byte[] cells = empty(sizeOf(board));
+        for (int i = 0; i < cells.length; i++) {
+            char c = board.charAt(i);
+            if (c == GamePlayer.X.getSymbol()) {
+                cells[i] = X;
+            } else if (c == GamePlayer.O.getSymbol()) {
+                cells[i] = O;
+            } else if (c != ' ') {
+                throw new IllegalArgumentException("Invalid board cell: '" + c + "'");
+            }
+        }
+        return cells;
+    }
+
+    public static String toString(byte[] cells) {
+        char[] chars = new char[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            chars[i] = cells[i] == X ? GamePlayer.X.getSymbol() : cells[i] == O ? GamePlayer.O.getSymbol() : ' ';
+        }
+        return new String(chars);
+    }
+
+    public static int packedLength(int size) {
+        return 1 + (size * size + CELLS_PER_BYTE - 1) / CELLS_PER_BYTE;
+    }
+
+    public static byte[] pack(byte[] cells) {
+        int size = (int) Math.sqrt(cells.length);
+        byte[] packed = new byte[packedLength(size)];
+        packed[0] = (byte) size;
+        for (int i = 0; i < cells.length; i++) {
+            packed[1 + i / CELLS_PER_BYTE] += (byte) (cells[i] * POWERS[i % CELLS_PER_BYTE]);
+        }
+        return packed;
+    }
+
+    public static byte[] unpack(byte[] packed) {
+        int size = packed[0] & 0xFF;
+        if (packed.length != packedLength(size)) {
+            throw new IllegalArgumentException("Packed board of size " + size + " must be " + packedLength(size) + " bytes");
+        }
+        byte[] cells = empty(size);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = UNPACKED[(packed[1 + i / CELLS_PER_BYTE] & 0xFF) * CELLS_PER_BYTE + i % CELLS_PER_BYTE];
+        }
+        return cells;
+    }
+}
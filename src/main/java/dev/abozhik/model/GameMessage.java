@@ -1,12 +1,22 @@
 package dev.abozhik.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import dev.abozhik.model.entity.Game;
 import lombok.Data;
 
+/**
+ * One move of a game as broadcast on /topic/game/{id}. The sequence is the move number;
+ * status is only set by the move that ended the game. A game ended without a move (turn timeout)
+ * is announced by a message with the sequence of the last move, the status and no position.
+ * A snapshot carries the whole game instead of a move, and replaces whatever state the subscriber has.
+ */
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class GameMessage {
     private Long id;
-    private int position;
-    private String board;
-    private GamePlayer currentPlayer;
+    private int sequence;
+    private Integer position;
+    private GamePlayer player;
     private GameStatus status;
-}
\ No newline at end of file
+    private Game game;
+}
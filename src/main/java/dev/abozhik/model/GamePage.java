@@ -0,0 +1,22 @@
+package dev.abozhik.model;
+
+import dev.abozhik.model.entity.Game;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A page of games, newest first")
+public class GamePage {
+
+    @Schema(description = "Games on this page")
+    private List<Game> items;
+
+    @Schema(description = "Cursor for the next page, null on the last page", example = "42")
+    private Long nextCursor;
+}
@@ -0,0 +1,22 @@
+package dev.abozhik.model;
+
+import dev.abozhik.model.constants.GameConstants;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Request to be matched with an opponent")
+public class MatchRequest {
+
+    @Schema(description = "Name of the player, shown to the opponent", example = "player-1")
+    private String playerId;
+
+    @Schema(description = "Board size (3-32)", example = "3")
+    private int size = GameConstants.DEFAULT_BOARD_SIZE;
+
+    @Schema(description = "Stones in a row needed to win (3-size)", example = "3")
+    private int winLength = GameConstants.DEFAULT_WIN_LENGTH;
+
+    @Schema(description = "Rating of the player; only players in the same rating bucket are matched", example = "1200")
+    private Integer rating;
+}
@@ -0,0 +1,37 @@
+package dev.abozhik.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "State of a matchmaking request, also sent to the player on /user/queue/matches")
+public class MatchResult {
+
+    @Schema(description = "WAITING until an opponent is found, then MATCHED")
+    private MatchStatus status;
+
+    @Schema(description = "ID of the created game, null unless matched", example = "1")
+    private Long gameId;
+
+    @Schema(description = "Side the player plays in the game, null unless matched", example = "X")
+    private GamePlayer player;
+
+    @Schema(description = "ID of the opponent, null unless matched", example = "player-2")
+    private String opponent;
+
+    @Schema(description = "Secret of a request still waiting, only returned over HTTP. Reads or cancels the request, and sent as " +
+            "the ticket header on STOMP CONNECT makes that connection receive the match", example = "4f1c2b9e-7a43-4d8e-9c1a-2b6f0e8d5a17")
+    private String ticket;
+
+    public static MatchResult of(MatchStatus status) {
+        return new MatchResult(status, null, null, null, null);
+    }
+
+    public static MatchResult matched(Long gameId, GamePlayer player, String opponent) {
+        return new MatchResult(MatchStatus.MATCHED, gameId, player, opponent, null);
+    }
+}
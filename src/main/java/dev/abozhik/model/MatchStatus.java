@@ -0,0 +1,8 @@
+package dev.abozhik.model;
+
+public enum MatchStatus {
+    WAITING,
+    MATCHED,
+    CANCELLED,
+    EXPIRED
+}
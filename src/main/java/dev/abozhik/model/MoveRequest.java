@@ -7,7 +7,7 @@ import lombok.Data;
 @Schema(description = "Request object for making a move in the game")
 public class MoveRequest {
 
-    @Schema(description = "Position on the board (0-8, where 0 is top-left and 8 is bottom-right)", example = "4")
+    @Schema(description = "Position on the board, row by row: 0 is top-left and size * size - 1 is bottom-right", example = "4")
     private int position;
 
     @Schema(description = "Unique identifier for the move request", example = "move-123")
@@ -0,0 +1,34 @@
+package dev.abozhik.model;
+
+import dev.abozhik.model.entity.Game;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Result of a single move in a batch")
+public class MoveResult {
+
+    @Schema(description = "ID of the game the move was addressed to", example = "1")
+    private Long gameId;
+
+    @Schema(description = "Request ID of the move", example = "move-123")
+    private String requestId;
+
+    @Schema(description = "Game state right after the move, null if the move failed")
+    private Game game;
+
+    @Schema(description = "Reason the move was rejected, null if it succeeded", example = "Position already taken")
+    private String error;
+
+    public static MoveResult success(BatchMoveRequest move, Game game) {
+        return new MoveResult(move.getGameId(), move.getRequestId(), game, null);
+    }
+
+    public static MoveResult failure(BatchMoveRequest move, String error) {
+        return new MoveResult(move.getGameId(), move.getRequestId(), null, error);
+    }
+}
@@ -0,0 +1,28 @@
+package dev.abozhik.model;
+
+import dev.abozhik.model.constants.GameConstants;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Self-play games to simulate between two strategies")
+public class SimulationRequest {
+
+    @Schema(description = "Strategy playing X: RANDOM, HEURISTIC (win, block, centre, else random) or PERFECT (3x3 only)", example = "HEURISTIC")
+    private SimulationStrategy x = SimulationStrategy.RANDOM;
+
+    @Schema(description = "Strategy playing O", example = "RANDOM")
+    private SimulationStrategy o = SimulationStrategy.RANDOM;
+
+    @Schema(description = "Board size (3-32)", example = "3")
+    private int size = GameConstants.DEFAULT_BOARD_SIZE;
+
+    @Schema(description = "Stones in a row needed to win (3-size)", example = "3")
+    private int winLength = GameConstants.DEFAULT_WIN_LENGTH;
+
+    @Schema(description = "Number of games to play", example = "1000000")
+    private long games = 10_000;
+
+    @Schema(description = "Seed of the random strategies; the same seed replays the same games. Random when not set", example = "42")
+    private Long seed;
+}
@@ -0,0 +1,46 @@
+package dev.abozhik.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Win/draw statistics of a simulation")
+public class SimulationResult {
+
+    @Schema(description = "Strategy that played X", example = "HEURISTIC")
+    private SimulationStrategy x;
+
+    @Schema(description = "Strategy that played O", example = "RANDOM")
+    private SimulationStrategy o;
+
+    @Schema(description = "Board size", example = "3")
+    private int size;
+
+    @Schema(description = "Stones in a row needed to win", example = "3")
+    private int winLength;
+
+    @Schema(description = "Seed the games were played with", example = "42")
+    private long seed;
+
+    @Schema(description = "Games played", example = "1000000")
+    private long games;
+
+    @Schema(description = "Games won by X", example = "905412")
+    private long winsX;
+
+    @Schema(description = "Games won by O", example = "12088")
+    private long winsO;
+
+    @Schema(description = "Drawn games", example = "82500")
+    private long draws;
+
+    @Schema(description = "Moves played over all games", example = "6231877")
+    private long moves;
+
+    @Schema(description = "Wall-clock time of the simulation in milliseconds", example = "180")
+    private long elapsedMillis;
+}
@@ -0,0 +1,7 @@
+package dev.abozhik.model;
+
+public enum SimulationStrategy {
+    RANDOM,
+    HEURISTIC,
+    PERFECT
+}
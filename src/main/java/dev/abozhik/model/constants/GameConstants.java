@@ -2,6 +2,14 @@ package dev.abozhik.model.constants;
 
 public final class GameConstants {
     public static final String EMPTY_BOARD = "         ";
+    public static final int DEFAULT_BOARD_SIZE = 3;
+    public static final int DEFAULT_WIN_LENGTH = 3;
+    public static final int MIN_BOARD_SIZE = 3;
+    public static final int MAX_BOARD_SIZE = 32;
+    // size header plus five cells per byte
+    public static final int MAX_PACKED_BOARD_LENGTH = 1 + (MAX_BOARD_SIZE * MAX_BOARD_SIZE + 4) / 5;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
 
     private GameConstants() {}
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package dev.abozhik.model.converter;
+
+import dev.abozhik.model.Board;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class BoardConverter implements AttributeConverter<byte[], byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(byte[] cells) {
+        return cells != null ? Board.pack(cells) : null;
+    }
+
+    @Override
+    public byte[] convertToEntityAttribute(byte[] packed) {
+        return packed != null ? Board.unpack(packed) : null;
+    }
+}
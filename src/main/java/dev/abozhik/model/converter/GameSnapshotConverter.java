@@ -0,0 +1,85 @@
+package dev.abozhik.model.converter;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.constants.GameConstants;
+import dev.abozhik.model.entity.Game;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed binary layout for stored game responses: format, id, version, creation time as epoch second
+ * and nano, status, current player, AI player (0 for none), win length, move count and the packed
+ * board. A 3x3 game takes 38 bytes instead of about 180 as JSON.
+ */
+@Converter
+public class GameSnapshotConverter implements AttributeConverter<Game, byte[]> {
+
+    private static final int HEADER_LENGTH = 35;
+    public static final int MAX_LENGTH = HEADER_LENGTH + GameConstants.MAX_PACKED_BOARD_LENGTH;
+
+    private static final byte FORMAT = 1;
+    private static final long NONE = Long.MIN_VALUE;
+    private static final GameStatus[] STATUSES = GameStatus.values();
+    private static final GamePlayer[] PLAYERS = GamePlayer.values();
+
+    @Override
+    public byte[] convertToDatabaseColumn(Game game) {
+        return game != null ? encode(game) : null;
+    }
+
+    @Override
+    public Game convertToEntityAttribute(byte[] snapshot) {
+        return snapshot != null ? decode(snapshot) : null;
+    }
+
+    public static byte[] encode(Game game) {
+        byte[] board = Board.pack(game.getCells());
+        LocalDateTime created = game.getCreationDateTime();
+        return ByteBuffer.allocate(HEADER_LENGTH + board.length)
+                .put(FORMAT)
+                .putLong(game.getId() != null ? game.getId() : NONE)
+                .putLong(game.getVersion() != null ? game.getVersion() : NONE)
+                .putLong(created != null ? created.toEpochSecond(ZoneOffset.UTC) : NONE)
+                .putInt(created != null ? created.getNano() : 0)
+                .put((byte) game.getStatus().ordinal())
+                .put((byte) game.getCurrentPlayer().ordinal())
+                .put((byte) (game.getAiPlayer() != null ? game.getAiPlayer().ordinal() + 1 : 0))
+                .put((byte) game.getWinLength())
+                .putShort((short) game.getMoveCount())
+                .put(board)
+                .array();
+    }
+
+    public static Game decode(byte[] snapshot) {
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+        byte format = buffer.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unknown game snapshot format: " + format);
+        }
+        Game game = new Game();
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        game.setId(id != NONE ? id : null);
+        game.setVersion(version != NONE ? version : null);
+        game.setCreationDateTime(epochSecond != NONE ? LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC) : null);
+        game.setStatus(STATUSES[buffer.get()]);
+        game.setCurrentPlayer(PLAYERS[buffer.get()]);
+        byte aiPlayer = buffer.get();
+        game.setAiPlayer(aiPlayer != 0 ? PLAYERS[aiPlayer - 1] : null);
+        game.setWinLength(buffer.get() & 0xFF);
+        game.setMoveCount(buffer.getShort() & 0xFFFF);
+        byte[] board = new byte[buffer.remaining()];
+        buffer.get(board);
+        game.setCells(Board.unpack(board));
+        game.setBoardSize(board[0] & 0xFF);
+        return game;
+    }
+}
@@ -1,7 +1,11 @@
 package dev.abozhik.model.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import dev.abozhik.model.Board;
 import dev.abozhik.model.GamePlayer;
 import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.constants.GameConstants;
+import dev.abozhik.model.converter.BoardConverter;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,8 +23,23 @@ public class Game {
     @Column(nullable = false)
     private GamePlayer currentPlayer;
 
+    @JsonIgnore
+    @Column(name = "board", nullable = false, length = GameConstants.MAX_PACKED_BOARD_LENGTH)
+    @Convert(converter = BoardConverter.class)
+    private byte[] cells;
+
+    @Column(nullable = false)
+    private int boardSize;
+
     @Column(nullable = false)
-    private String board;
+    private int winLength;
+
+    // Sequence number of the last move, as carried by the deltas on /topic/game/{id}
+    @Column(nullable = false)
+    private int moveCount;
+
+    @Column
+    private GamePlayer aiPlayer;
 
     @Column(nullable = false)
     private GameStatus status;
@@ -33,8 +52,42 @@ public class Game {
 
     public Game(GameStatus status, String board, GamePlayer currentPlayer) {
         this.status = status;
-        this.board = board;
+        this.boardSize = Board.sizeOf(board);
+        this.winLength = boardSize;
         this.currentPlayer = currentPlayer;
+        setBoard(board);
+    }
+
+    public Game(int boardSize, int winLength) {
+        this.status = GameStatus.IN_PROGRESS;
+        this.cells = Board.empty(boardSize);
+        this.boardSize = boardSize;
+        this.winLength = winLength;
+        this.currentPlayer = GamePlayer.X;
+    }
+
+    public static Game copyOf(Game game) {
+        Game copy = new Game();
+        copy.setId(game.getId());
+        copy.setCurrentPlayer(game.getCurrentPlayer());
+        copy.setCells(game.getCells().clone());
+        copy.setBoardSize(game.getBoardSize());
+        copy.setWinLength(game.getWinLength());
+        copy.setMoveCount(game.getMoveCount());
+        copy.setAiPlayer(game.getAiPlayer());
+        copy.setStatus(game.getStatus());
+        copy.setCreationDateTime(game.getCreationDateTime());
+        copy.setVersion(game.getVersion());
+        return copy;
+    }
+
+    public String getBoard() {
+        return Board.toString(cells);
+    }
+
+    public void setBoard(String board) {
+        this.cells = Board.fromString(board);
+        this.moveCount = Board.countStones(cells);
     }
 
     @PrePersist
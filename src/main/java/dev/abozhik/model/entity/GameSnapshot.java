@@ -0,0 +1,40 @@
+package dev.abozhik.model.entity;
+
+import dev.abozhik.model.converter.GameSnapshotConverter;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Data
+@NoArgsConstructor
+public class GameSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_snapshot_seq")
+    @SequenceGenerator(name = "game_snapshot_seq", sequenceName = "game_snapshot_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long gameId;
+
+    @Column(nullable = false)
+    private int moveNumber;
+
+    @Column(nullable = false, length = GameSnapshotConverter.MAX_LENGTH)
+    @Convert(converter = GameSnapshotConverter.class)
+    private Game state;
+
+    @Column(nullable = false)
+    private LocalDateTime creationDateTime;
+
+    public GameSnapshot(Game state) {
+        this.gameId = state.getId();
+        this.moveNumber = state.getMoveCount();
+        this.state = state;
+        this.creationDateTime = LocalDateTime.now();
+    }
+}
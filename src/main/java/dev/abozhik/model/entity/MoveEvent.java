@@ -0,0 +1,44 @@
+package dev.abozhik.model.entity;
+
+import dev.abozhik.model.GamePlayer;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Immutable
+@Data
+@NoArgsConstructor
+public class MoveEvent {
+    // Sequence ids let Hibernate batch the inserts, IDENTITY would force one round trip per row
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "move_event_seq")
+    @SequenceGenerator(name = "move_event_seq", sequenceName = "move_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long gameId;
+
+    @Column(nullable = false)
+    private int moveNumber;
+
+    @Column(nullable = false)
+    private int position;
+
+    @Column(nullable = false)
+    private GamePlayer player;
+
+    @Column(nullable = false)
+    private LocalDateTime creationDateTime;
+
+    public MoveEvent(Long gameId, int moveNumber, int position, GamePlayer player) {
+        this.gameId = gameId;
+        this.moveNumber = moveNumber;
+        this.position = position;
+        this.player = player;
+        this.creationDateTime = LocalDateTime.now();
+    }
+}
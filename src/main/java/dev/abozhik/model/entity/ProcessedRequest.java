@@ -1,27 +1,65 @@
 package dev.abozhik.model.entity;
 
+import dev.abozhik.model.converter.GameSnapshotConverter;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Immutable
 @Data
-public class ProcessedRequest {
+public class ProcessedRequest implements Persistable<String> {
     @Id
     private String requestId;
 
-    @Column(nullable = false)
-    private String response;
+    @Column(nullable = false, length = GameSnapshotConverter.MAX_LENGTH)
+    @Convert(converter = GameSnapshotConverter.class)
+    private Game response;
 
     @Column(nullable = false)
     private LocalDateTime creationDateTime;
 
+    // Request ids are assigned by clients, so without this save() would merge and select first
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public String getId() {
+        return requestId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
     @PrePersist
     protected void onCreate() {
         creationDateTime = LocalDateTime.now();
     }
-}
\ No newline at end of file
+
+    @PostLoad
+    @PostPersist
+    protected void markPersisted() {
+        persisted = true;
+    }
+}
@@ -0,0 +1,26 @@
+package dev.abozhik.repository;
+
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Game listing with optional filters. Only the filters that are set become predicates, so every combination
+ * is its own statement and the database can plan it with idx_game_status_id or idx_game_creation_date_time.
+ */
+public interface GameListingRepository {
+
+    /**
+     * Games matching the filters with an id below beforeId (when set), newest first.
+     */
+    List<Game> findPage(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo, Long beforeId, Limit limit);
+
+    /**
+     * All games matching the filters, oldest first, read in chunks as read-only entities.
+     */
+    Stream<Game> streamAll(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo);
+}
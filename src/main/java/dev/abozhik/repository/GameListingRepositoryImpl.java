@@ -0,0 +1,68 @@
+package dev.abozhik.repository;
+
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+class GameListingRepositoryImpl implements GameListingRepository {
+
+    private final EntityManager entityManager;
+
+    GameListingRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Game> findPage(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo, Long beforeId, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Game> query = cb.createQuery(Game.class);
+        Root<Game> game = query.from(Game.class);
+        List<Predicate> predicates = filters(cb, game, status, createdFrom, createdTo);
+        if (beforeId != null) {
+            predicates.add(cb.lessThan(game.get("id"), beforeId));
+        }
+        query.where(predicates.toArray(Predicate[]::new)).orderBy(cb.desc(game.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultList();
+    }
+
+    @Override
+    public Stream<Game> streamAll(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Game> query = cb.createQuery(Game.class);
+        Root<Game> game = query.from(Game.class);
+        query.where(filters(cb, game, status, createdFrom, createdTo).toArray(Predicate[]::new))
+                .orderBy(cb.asc(game.get("id")));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<Game> game, GameStatus status,
+                                           LocalDateTime createdFrom, LocalDateTime createdTo) {
+        List<Predicate> predicates = new ArrayList<>(4);
+        if (status != null) {
+            predicates.add(cb.equal(game.get("status"), status));
+        }
+        if (createdFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(game.get("creationDateTime"), createdFrom));
+        }
+        if (createdTo != null) {
+            predicates.add(cb.lessThan(game.get("creationDateTime"), createdTo));
+        }
+        return predicates;
+    }
+}
@@ -1,10 +1,29 @@
 package dev.abozhik.repository;
 
+import dev.abozhik.model.GameStatus;
 import dev.abozhik.model.entity.Game;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
 @Repository
-public interface GameRepository extends JpaRepository<Game, Long> {
+public interface GameRepository extends JpaRepository<Game, Long>, GameListingRepository {
+
+    long countByStatus(GameStatus status);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select g.id as id, g.moveCount as moveCount from Game g where g.status = :status")
+    Stream<GameTurn> streamTurns(GameStatus status);
+
+    interface GameTurn {
+        Long getId();
+
+        int getMoveCount();
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package dev.abozhik.repository;
+
+import dev.abozhik.model.entity.GameSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GameSnapshotRepository extends JpaRepository<GameSnapshot, Long> {
+
+    Optional<GameSnapshot> findFirstByGameIdAndMoveNumberLessThanEqualOrderByMoveNumberDesc(Long gameId, int moveNumber);
+
+}
@@ -0,0 +1,26 @@
+package dev.abozhik.repository;
+
+import dev.abozhik.model.entity.MoveEvent;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface MoveEventRepository extends JpaRepository<MoveEvent, Long> {
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select e from MoveEvent e
+            where e.gameId = :gameId and e.moveNumber > :afterMove and e.moveNumber <= :upToMove
+            order by e.moveNumber""")
+    Stream<MoveEvent> streamMoves(Long gameId, int afterMove, int upToMove);
+
+}
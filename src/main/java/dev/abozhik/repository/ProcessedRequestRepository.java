@@ -1,14 +1,24 @@
 package dev.abozhik.repository;
 
 import dev.abozhik.model.entity.ProcessedRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface ProcessedRequestRepository extends JpaRepository<ProcessedRequest, String> {
 
-    void deleteByCreationDateTimeBefore(LocalDateTime dateTime);
+    @Query("select p.requestId from ProcessedRequest p where p.creationDateTime < :dateTime order by p.creationDateTime")
+    List<String> findRequestIdsCreatedBefore(LocalDateTime dateTime, Pageable pageable);
 
-} 
\ No newline at end of file
+    @Modifying
+    @Query("delete from ProcessedRequest p where p.requestId in :requestIds")
+    int deleteByRequestIdIn(Collection<String> requestIds);
+
+}
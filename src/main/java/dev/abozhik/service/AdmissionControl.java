@@ -0,0 +1,249 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for game creation, moves and simulations, over HTTP and STOMP alike. Every client has a token bucket
+ * per limit, and a global limit caps the requests running at once. A request over either limit is rejected
+ * right away instead of queueing for the database.
+ * A bucket is one AtomicLong, the time at which it is empty again (GCRA), taken with a single CAS. Buckets are
+ * only dropped once full again, by a sweep that runs at most once a second when a limit has max-clients buckets;
+ * should none be full, new clients are rejected until some are rather than evicting a bucket still in use.
+ * The sweep retires a bucket with the same CAS before removing it, so a caller that fetched it just before
+ * moves on to the client's new bucket instead of taking tokens nobody will see.
+ * Callers that queue before doing the work, such as moves waiting in their game's mailbox, take tokens with
+ * {@link #admit} first and hold a global slot with {@link #run} only while the work runs.
+ */
+@Component
+public class AdmissionControl {
+
+    /**
+     * Session attribute holding the client a STOMP connection counts against, set at the handshake.
+     */
+    public static final String CLIENT_ATTRIBUTE = "admission.client";
+
+    public enum Limit {
+        CREATE,
+        MOVE,
+        SIMULATE
+    }
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final Bucket[] buckets = new Bucket[Limit.values().length];
+    private final Counter[] rateRejections = new Counter[Limit.values().length];
+    private final Counter[] concurrencyRejections = new Counter[Limit.values().length];
+    private final Counter[] clientRejections = new Counter[Limit.values().length];
+
+    public AdmissionControl(MeterRegistry meterRegistry,
+                            @Value("${game.admission.enabled:true}") boolean enabled,
+                            @Value("${game.admission.client-header:}") String clientHeader,
+                            @Value("${game.admission.max-concurrent:64}") int maxConcurrent,
+                            @Value("${game.admission.max-clients:100000}") long maxClients,
+                            @Value("${game.admission.create.rate:5}") double createRate,
+                            @Value("${game.admission.create.burst:20}") int createBurst,
+                            @Value("${game.admission.move.rate:20}") double moveRate,
+                            @Value("${game.admission.move.burst:40}") int moveBurst,
+                            @Value("${game.admission.simulate.rate:0.1}") double simulateRate,
+                            @Value("${game.admission.simulate.burst:1}") int simulateBurst) {
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        buckets[Limit.CREATE.ordinal()] = Bucket.of(createRate, createBurst, maxClients);
+        buckets[Limit.MOVE.ordinal()] = Bucket.of(moveRate, moveBurst, maxClients);
+        buckets[Limit.SIMULATE.ordinal()] = Bucket.of(simulateRate, simulateBurst, maxClients);
+        for (Limit limit : Limit.values()) {
+            String name = limit.name().toLowerCase();
+            rateRejections[limit.ordinal()] = Counter.builder("game.admission.rejected")
+                    .description("Requests rejected with 429")
+                    .tag("limit", name)
+                    .tag("reason", "rate")
+                    .register(meterRegistry);
+            concurrencyRejections[limit.ordinal()] = Counter.builder("game.admission.rejected")
+                    .description("Requests rejected with 429")
+                    .tag("limit", name)
+                    .tag("reason", "concurrency")
+                    .register(meterRegistry);
+            clientRejections[limit.ordinal()] = Counter.builder("game.admission.rejected")
+                    .description("Requests rejected with 429")
+                    .tag("limit", name)
+                    .tag("reason", "clients")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("game.admission.in-flight", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Admitted requests running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the task if the client has a token left and a global slot is free, otherwise throws {@link TooManyRequestsException}.
+     */
+    public <T> T call(String client, Limit limit, Supplier<T> task) {
+        admit(client, limit, 1);
+        return run(limit, task);
+    }
+
+    /**
+     * Takes tokens from the client's bucket, one per unit of work, otherwise throws {@link TooManyRequestsException}.
+     * Work bigger than the burst is only admitted with a full bucket, and the client then waits for the rest.
+     */
+    public void admit(String client, Limit limit, int tokens) {
+        if (!enabled) {
+            return;
+        }
+        long waitNanos = buckets[limit.ordinal()].take(client, tokens);
+        if (waitNanos == Bucket.NO_ROOM) {
+            clientRejections[limit.ordinal()].increment();
+            throw new TooManyRequestsException("Server is busy, try again shortly", 1);
+        }
+        if (waitNanos > 0) {
+            rateRejections[limit.ordinal()].increment();
+            throw new TooManyRequestsException("Too many requests, slow down",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    /**
+     * Runs admitted work if a global slot is free, otherwise throws {@link TooManyRequestsException}.
+     */
+    public <T> T run(Limit limit, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        if (!permits.tryAcquire()) {
+            concurrencyRejections[limit.ordinal()].increment();
+            throw new TooManyRequestsException("Server is busy, try again shortly", 1);
+        }
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * The client an HTTP request counts against: the configured header when set (behind a proxy), else the remote address.
+     */
+    public String clientOf(HttpServletRequest request) {
+        if (!clientHeader.isBlank()) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * The client a STOMP message counts against: the one its connection was opened by, else the session.
+     */
+    public String clientOf(SimpMessageHeaderAccessor headers) {
+        Map<String, Object> attributes = headers.getSessionAttributes();
+        if (attributes != null && attributes.get(CLIENT_ATTRIBUTE) instanceof String client) {
+            return client;
+        }
+        return headers.getSessionId();
+    }
+
+    private static final class Bucket {
+        private static final long NO_ROOM = -1;
+        private static final long RETIRED = Long.MIN_VALUE;
+        private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final long maxClients;
+        // client -> time the bucket is empty again; a rate of 0 means no limit and no buckets
+        private final ConcurrentMap<String, AtomicLong> emptyAt;
+        private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+        private Bucket(long intervalNanos, long toleranceNanos, long maxClients, ConcurrentMap<String, AtomicLong> emptyAt) {
+            this.intervalNanos = intervalNanos;
+            this.toleranceNanos = toleranceNanos;
+            this.maxClients = maxClients;
+            this.emptyAt = emptyAt;
+        }
+
+        private static Bucket of(double ratePerSecond, int burst, long maxClients) {
+            if (ratePerSecond <= 0) {
+                return new Bucket(0, 0, 0, null);
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            long tolerance = interval * Math.max(burst, 1);
+            return new Bucket(interval, tolerance, maxClients, new ConcurrentHashMap<>());
+        }
+
+        /**
+         * Takes the tokens. Returns 0 when taken, NO_ROOM when there is no room for a new client's bucket,
+         * else how long until they are available. More tokens than the burst are taken from a full bucket.
+         */
+        private long take(String client, int tokens) {
+            if (emptyAt == null) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            AtomicLong bucket = emptyAt.get(client);
+            if (bucket == null) {
+                if (emptyAt.size() >= maxClients && !sweep(now)) {
+                    return NO_ROOM;
+                }
+                bucket = emptyAt.computeIfAbsent(client, key -> new AtomicLong(now));
+            }
+            long cost = intervalNanos * Math.max(tokens, 1);
+            while (true) {
+                long current = bucket.get();
+                if (current == RETIRED) {
+                    // swept since it was fetched; it was full, so the new one is the same
+                    emptyAt.remove(client, bucket);
+                    bucket = emptyAt.computeIfAbsent(client, key -> new AtomicLong(now));
+                    continue;
+                }
+                long next = Math.max(current, now) + cost;
+                // until the bucket has room for the cost or, for a cost over the burst, is full
+                long wait = Math.min(next - now - toleranceNanos, current - now);
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Drops the full buckets, which are the same as new ones, unless another thread swept within the last second.
+         * Returns whether there is room for a new bucket.
+         */
+        private boolean sweep(long now) {
+            long due = nextSweep.get();
+            if (now - due >= 0 && nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+                for (Map.Entry<String, AtomicLong> entry : emptyAt.entrySet()) {
+                    AtomicLong bucket = entry.getValue();
+                    long current = bucket.get();
+                    if (current != RETIRED && current - now <= 0 && bucket.compareAndSet(current, RETIRED)) {
+                        emptyAt.remove(entry.getKey(), bucket);
+                    }
+                }
+            }
+            return emptyAt.size() < maxClients;
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.constants.GameConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Iterative-deepening alpha-beta search for k-in-a-row boards too large for {@link PerfectPlayAi}.
+ * At every depth the first root move is searched alone to set the bound, then the remaining root moves
+ * are searched in parallel on a ForkJoinPool. All workers share one lock-free transposition table of
+ * primitive longs keyed by Zobrist hashes. The search stops at the time budget and plays the best move
+ * of the last completed depth.
+ */
+@Slf4j
+@Component
+public class AlphaBetaSearch implements DisposableBean {
+
+    static final int WIN = 1_000_000;
+    private static final int INFINITY = WIN + 1;
+    static final int MAX_DEPTH = 64;
+    // moves searched per node, best first by their static score; keeps the tree tractable on big boards
+    private static final int MAX_CANDIDATES = 16;
+    private static final int NEIGHBOURHOOD = 2;
+    private static final int MAX_CELLS = GameConstants.MAX_BOARD_SIZE * GameConstants.MAX_BOARD_SIZE;
+
+    // ZOBRIST[stone - 1][cell]; VARIANT keys keep boards of different geometry apart in the shared table
+    private static final long[][] ZOBRIST = new long[2][MAX_CELLS];
+    private static final long[] VARIANT = new long[(GameConstants.MAX_BOARD_SIZE + 1) * (GameConstants.MAX_BOARD_SIZE + 1)];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_2025L);
+        for (long[] keys : ZOBRIST) {
+            Arrays.setAll(keys, i -> random.nextLong());
+        }
+        Arrays.setAll(VARIANT, i -> random.nextLong());
+    }
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final long timeBudgetNanos;
+    private final Timer searchTimer;
+    private final DistributionSummary depthSummary;
+    private final Counter nodeCounter;
+
+    public AlphaBetaSearch(MeterRegistry meterRegistry,
+                           @Value("${game.ai.search.time-budget:200}") long timeBudgetMillis,
+                           @Value("${game.ai.search.parallelism:0}") int parallelism,
+                           @Value("${game.ai.search.table-entries:262144}") int tableEntries) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.table = new TranspositionTable(tableEntries);
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.searchTimer = Timer.builder("game.ai.search")
+                .description("Time spent searching for an AI move")
+                .register(meterRegistry);
+        this.depthSummary = DistributionSummary.builder("game.ai.search.depth")
+                .description("Depth completed within the time budget")
+                .register(meterRegistry);
+        this.nodeCounter = Counter.builder("game.ai.search.nodes")
+                .description("Positions visited by the AI search")
+                .register(meterRegistry);
+    }
+
+    public int bestMove(byte[] cells, int size, int winLength) {
+        return search(cells, size, winLength, timeBudgetNanos, MAX_DEPTH).move();
+    }
+
+    public SearchResult search(byte[] cells, int size, int winLength, long budgetNanos, int maxDepth) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        Position root = new Position(cells.clone(), size, winLength);
+        LongAdder nodes = new LongAdder();
+
+        int bestMove = -1;
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH) && root.stones + depth - 1 < root.cells.length; depth++) {
+            try {
+                long result = pool.invoke(new RootTask(root, depth, deadline, bestMove, nodes));
+                bestMove = unpackMove(result);
+                bestScore = unpackScore(result);
+                completedDepth = depth;
+            } catch (RuntimeException e) {
+                if (!(e instanceof SearchTimeout) && !(e.getCause() instanceof SearchTimeout)) {
+                    throw e;
+                }
+                break;
+            }
+            if (Math.abs(bestScore) >= WIN - MAX_DEPTH) {
+                break;
+            }
+        }
+        if (bestMove < 0) {
+            bestMove = new Worker(deadline, nodes).firstCandidate(root);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        searchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        depthSummary.record(completedDepth);
+        nodeCounter.increment(nodes.sum());
+        log.debug("Searched {} nodes to depth {} in {} ms, move={}, score={}",
+                nodes.sum(), completedDepth, TimeUnit.NANOSECONDS.toMillis(elapsed), bestMove, bestScore);
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes.sum(), elapsed);
+    }
+
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static long pack(int score, int move) {
+        return (long) score << 32 | (move & 0xFFFFFFFFL);
+    }
+
+    private static int unpackScore(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    private static int unpackMove(long packed) {
+        return (int) packed;
+    }
+
+    public record SearchResult(int move, int score, int depth, long nodes, long elapsedNanos) {}
+
+    /**
+     * Searches the first root move on the calling worker, then forks one task per remaining root move.
+     * Those start from the best score found so far, which is shared through an AtomicLong.
+     */
+    private final class RootTask extends RecursiveTask<Long> {
+        private final Position root;
+        private final int depth;
+        private final long deadline;
+        private final int preferred;
+        private final LongAdder nodes;
+
+        private RootTask(Position root, int depth, long deadline, int preferred, LongAdder nodes) {
+            this.root = root;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.preferred = preferred;
+            this.nodes = nodes;
+        }
+
+        @Override
+        protected Long compute() {
+            Worker worker = new Worker(deadline, nodes);
+            Position position = root.copy();
+            int[] moves = worker.moves[0];
+            int count = worker.candidates(position, preferred, 0);
+
+            try {
+                AtomicLong best = new AtomicLong(pack(worker.searchMove(position, moves[0], depth, -INFINITY, INFINITY), moves[0]));
+                List<RecursiveTask<Integer>> tasks = new ArrayList<>(count - 1);
+                for (int i = 1; i < count; i++) {
+                    int move = moves[i];
+                    tasks.add(new RecursiveTask<>() {
+                        @Override
+                        protected Integer compute() {
+                            Worker child = new Worker(deadline, nodes);
+                            try {
+                                int alpha = unpackScore(best.get());
+                                int score = child.searchMove(root.copy(), move, depth, alpha, INFINITY);
+                                best.accumulateAndGet(pack(score, move), (current, candidate) ->
+                                        unpackScore(candidate) > unpackScore(current) ? candidate : current);
+                                return score;
+                            } finally {
+                                child.flushNodes();
+                            }
+                        }
+                    });
+                }
+                ForkJoinTask.invokeAll(tasks);
+                return best.get();
+            } finally {
+                worker.flushNodes();
+            }
+        }
+    }
+
+    private final class Worker {
+        private final long deadline;
+        private final LongAdder totalNodes;
+        private final int[][] moves = new int[MAX_DEPTH + 1][MAX_CANDIDATES];
+        private final int[][] priorities = new int[MAX_DEPTH + 1][MAX_CANDIDATES];
+        private long nodes;
+
+        private Worker(long deadline, LongAdder totalNodes) {
+            this.deadline = deadline;
+            this.totalNodes = totalNodes;
+        }
+
+        private void flushNodes() {
+            totalNodes.add(nodes);
+            nodes = 0;
+        }
+
+        private int firstCandidate(Position position) {
+            candidates(position, -1, 0);
+            return moves[0][0];
+        }
+
+        /**
+         * Score of playing move at the root of a depth-deep search, from the point of view of the side to move.
+         */
+        private int searchMove(Position position, int move, int depth, int alpha, int beta) {
+            position.place(move);
+            try {
+                if (Board.isWinningMove(position.cells, position.size, position.winLength, move)) {
+                    return WIN;
+                }
+                if (position.stones == position.cells.length) {
+                    return 0;
+                }
+                return -search(position, depth - 1, -beta, -alpha, 1);
+            } finally {
+                position.remove(move);
+            }
+        }
+
+        private int search(Position position, int depth, int alpha, int beta, int ply) {
+            if ((++nodes & 1023) == 0 && System.nanoTime() - deadline > 0) {
+                throw SearchTimeout.INSTANCE;
+            }
+            if (depth == 0) {
+                return position.evaluate();
+            }
+
+            long entry = table.probe(position.hash);
+            int preferred = -1;
+            if (entry != 0) {
+                preferred = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER && score >= beta
+                            || bound == TranspositionTable.UPPER && score <= alpha) {
+                        return score;
+                    }
+                }
+            }
+
+            int count = candidates(position, preferred, ply);
+            if (count == 0) {
+                return 0;
+            }
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = moves[ply][0];
+            for (int i = 0; i < count; i++) {
+                int move = moves[ply][i];
+                position.place(move);
+                int score;
+                if (Board.isWinningMove(position.cells, position.size, position.winLength, move)) {
+                    score = WIN - ply;
+                } else if (position.stones == position.cells.length) {
+                    score = 0;
+                } else {
+                    score = -search(position, depth - 1, -beta, -alpha, ply + 1);
+                }
+                position.remove(move);
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(position.hash, TranspositionTable.entry(bestMove, depth, bound, toTable(best, ply)));
+            return best;
+        }
+
+        /**
+         * Fills moves[ply] with the most promising empty cells near existing stones, best first.
+         */
+        private int candidates(Position position, int preferred, int ply) {
+            int[] moves = this.moves[ply];
+            int[] priorities = this.priorities[ply];
+            if (position.stones == 0) {
+                moves[0] = position.size / 2 * position.size + position.size / 2;
+                return 1;
+            }
+
+            int count = 0;
+            for (int pass = 0; pass < 2 && count == 0; pass++) {
+                for (int cell = 0; cell < position.cells.length; cell++) {
+                    if (position.cells[cell] != Board.EMPTY || pass == 0 && !position.hasNeighbour(cell)) {
+                        continue;
+                    }
+                    int priority = cell == preferred ? Integer.MAX_VALUE : position.priority(cell);
+                    if (count == MAX_CANDIDATES && priority <= priorities[count - 1]) {
+                        continue;
+                    }
+                    int i = count < MAX_CANDIDATES ? count++ : count - 1;
+                    while (i > 0 && priorities[i - 1] < priority) {
+                        moves[i] = moves[i - 1];
+                        priorities[i] = priorities[i - 1];
+                        i--;
+                    }
+                    moves[i] = cell;
+                    priorities[i] = priority;
+                }
+            }
+            return count;
+        }
+    }
+
+    // win scores are stored relative to the node so they stay valid when reached at another ply
+    private static int toTable(int score, int ply) {
+        return score >= WIN - MAX_DEPTH ? score + ply : score <= -WIN + MAX_DEPTH ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= WIN - MAX_DEPTH ? score - ply : score <= -WIN + MAX_DEPTH ? score + ply : score;
+    }
+
+    /**
+     * Search state: board, Zobrist hash and a static evaluation from X's point of view, all updated
+     * incrementally per stone. The evaluation sums every winLength window on the board that holds stones
+     * of one side only, weighted by how many it holds.
+     */
+    private static final class Position {
+        private final byte[] cells;
+        private final int size;
+        private final int winLength;
+        private final int[] weights;
+        private long hash;
+        private int eval;
+        private int stones;
+
+        private Position(byte[] cells, int size, int winLength) {
+            this.cells = cells;
+            this.size = size;
+            this.winLength = winLength;
+            this.weights = new int[winLength + 1];
+            for (int count = 1; count <= winLength; count++) {
+                weights[count] = 1 << Math.min(3 * (count - 1), 20);
+            }
+            this.hash = VARIANT[size * (GameConstants.MAX_BOARD_SIZE + 1) + winLength];
+            byte[] stonesToPlace = cells.clone();
+            Arrays.fill(cells, Board.EMPTY);
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (stonesToPlace[cell] != Board.EMPTY) {
+                    put(cell, stonesToPlace[cell]);
+                }
+            }
+        }
+
+        private Position(Position other) {
+            this.cells = other.cells.clone();
+            this.size = other.size;
+            this.winLength = other.winLength;
+            this.weights = other.weights;
+            this.hash = other.hash;
+            this.eval = other.eval;
+            this.stones = other.stones;
+        }
+
+        private Position copy() {
+            return new Position(this);
+        }
+
+        private byte toMove() {
+            return stones % 2 == 0 ? Board.X : Board.O;
+        }
+
+        private void place(int cell) {
+            put(cell, toMove());
+        }
+
+        private void put(int cell, byte stone) {
+            eval += delta(cell, stone);
+            cells[cell] = stone;
+            hash ^= ZOBRIST[stone - 1][cell];
+            stones++;
+        }
+
+        private void remove(int cell) {
+            byte stone = cells[cell];
+            cells[cell] = Board.EMPTY;
+            hash ^= ZOBRIST[stone - 1][cell];
+            stones--;
+            eval -= delta(cell, stone);
+        }
+
+        // kept clear of the win scores, which only the search itself assigns
+        private int evaluate() {
+            return Math.clamp(toMove() == Board.X ? eval : -eval, -WIN / 2, WIN / 2);
+        }
+
+        /**
+         * How much placing stone on the empty cell would change the evaluation of every window through it.
+         */
+        private int delta(int cell, byte stone) {
+            int row = cell / size;
+            int column = cell % size;
+            int delta = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                int rowStep = direction == 0 ? 0 : 1;
+                int columnStep = direction == 1 ? 0 : direction == 3 ? -1 : 1;
+                for (int offset = 0; offset < winLength; offset++) {
+                    int startRow = row - offset * rowStep;
+                    int startColumn = column - offset * columnStep;
+                    int endRow = startRow + (winLength - 1) * rowStep;
+                    int endColumn = startColumn + (winLength - 1) * columnStep;
+                    if (startRow < 0 || endRow >= size || Math.min(startColumn, endColumn) < 0 || Math.max(startColumn, endColumn) >= size) {
+                        continue;
+                    }
+                    int x = 0;
+                    int o = 0;
+                    for (int i = 0, r = startRow, c = startColumn; i < winLength; i++, r += rowStep, c += columnStep) {
+                        byte value = cells[r * size + c];
+                        if (value == Board.X) {
+                            x++;
+                        } else if (value == Board.O) {
+                            o++;
+                        }
+                    }
+                    int before = window(x, o);
+                    int after = stone == Board.X ? window(x + 1, o) : window(x, o + 1);
+                    delta += after - before;
+                }
+            }
+            return delta;
+        }
+
+        private int window(int x, int o) {
+            return x > 0 && o > 0 ? 0 : x > 0 ? weights[x] : o > 0 ? -weights[o] : 0;
+        }
+
+        // attacking and defending value of an empty cell for move ordering
+        private int priority(int cell) {
+            return Math.abs(delta(cell, Board.X)) + Math.abs(delta(cell, Board.O));
+        }
+
+        private boolean hasNeighbour(int cell) {
+            int row = cell / size;
+            int column = cell % size;
+            for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(size - 1, row + NEIGHBOURHOOD); r++) {
+                for (int c = Math.max(0, column - NEIGHBOURHOOD); c <= Math.min(size - 1, column + NEIGHBOURHOOD); c++) {
+                    if (cells[r * size + c] != Board.EMPTY) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Shared table of two longs per entry: key ^ data and data. A torn write from a concurrent store
+     * fails the key check and reads as a miss, so no locks are needed. Slots are accessed with opaque
+     * semantics, which guarantees every long is read and written whole.
+     */
+    static final class TranspositionTable {
+        static final int EXACT = 1;
+        static final int LOWER = 2;
+        static final int UPPER = 3;
+
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+        private final long[] slots;
+        private final int mask;
+
+        TranspositionTable(int entries) {
+            int capacity = Integer.highestOneBit(Math.max(entries, 2));
+            this.slots = new long[capacity * 2];
+            this.mask = capacity - 1;
+        }
+
+        // data layout: move (bits 0-15), depth (16-23), bound (24-25, never 0), score (32-63)
+        static long entry(int move, int depth, int bound, int score) {
+            return (long) score << 32 | (long) bound << 24 | (long) depth << 16 | move;
+        }
+
+        static int move(long entry) {
+            return (int) (entry & 0xFFFF);
+        }
+
+        static int depth(long entry) {
+            return (int) (entry >>> 16 & 0xFF);
+        }
+
+        static int bound(long entry) {
+            return (int) (entry >>> 24 & 0x3);
+        }
+
+        static int score(long entry) {
+            return (int) (entry >> 32);
+        }
+
+        long probe(long key) {
+            int index = index(key);
+            long check = (long) SLOTS.getOpaque(slots, index);
+            long data = (long) SLOTS.getOpaque(slots, index + 1);
+            return (check ^ data) == key ? data : 0;
+        }
+
+        void store(long key, long data) {
+            int index = index(key);
+            long existing = (long) SLOTS.getOpaque(slots, index + 1);
+            boolean sameKey = ((long) SLOTS.getOpaque(slots, index) ^ existing) == key;
+            if (sameKey && depth(existing) > depth(data)) {
+                return;
+            }
+            SLOTS.setOpaque(slots, index, key ^ data);
+            SLOTS.setOpaque(slots, index + 1, data);
+        }
+
+        void clear() {
+            Arrays.fill(slots, 0);
+        }
+
+        private int index(long key) {
+            return ((int) (key ^ key >>> 32) & mask) << 1;
+        }
+    }
+
+    private static final class SearchTimeout extends RuntimeException {
+        private static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        private SearchTimeout() {
+            super(null, null, false, false);
+        }
+    }
+}
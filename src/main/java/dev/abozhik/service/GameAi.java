@@ -0,0 +1,50 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plays the server's side in games against the AI: a table lookup on the classic board,
+ * a timed alpha-beta search on larger ones.
+ */
+@Component
+public class GameAi {
+
+    private final PerfectPlayAi perfectPlayAi;
+    private final AlphaBetaSearch alphaBetaSearch;
+
+    public GameAi(PerfectPlayAi perfectPlayAi, AlphaBetaSearch alphaBetaSearch) {
+        this.perfectPlayAi = perfectPlayAi;
+        this.alphaBetaSearch = alphaBetaSearch;
+    }
+
+    /**
+     * Plays the AI move if it is the AI's turn in a running game.
+     *
+     * @return the position played, or -1 when it was not the AI's turn
+     */
+    int respond(Game game) {
+        int move = choose(game);
+        if (move >= 0) {
+            GameRules.applyMove(game, move);
+        }
+        return move;
+    }
+
+    /**
+     * The AI move if it is the AI's turn in a running game, without playing it. Only reads the game,
+     * so the search can run on a copy while nothing else waits for it.
+     *
+     * @return the position to play, or -1 when it is not the AI's turn
+     */
+    int choose(Game game) {
+        if (game.getAiPlayer() == null || game.getStatus() != GameStatus.IN_PROGRESS
+                || game.getCurrentPlayer() != game.getAiPlayer()) {
+            return -1;
+        }
+        return PerfectPlayAi.supports(game.getBoardSize(), game.getWinLength())
+                ? perfectPlayAi.bestMove(game.getCells())
+                : alphaBetaSearch.bestMove(game.getCells(), game.getBoardSize(), game.getWinLength());
+    }
+}
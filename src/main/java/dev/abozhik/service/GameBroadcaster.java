@@ -0,0 +1,191 @@
+package dev.abozhik.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes move deltas to /topic/game/{id} outside of the move transaction.
+ * Deltas are queued per game and everything pending for a game is sent as one JSON array,
+ * so a burst of moves costs one broadcast once the lane catches up. When the lane has fallen more than
+ * max-deltas behind on a game, the pending deltas are coalesced into one snapshot of its latest state.
+ */
+@Slf4j
+@Component
+public class GameBroadcaster implements DisposableBean {
+
+    private final JsonMapper jsonMapper;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConcurrentMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ExecutorService[] lanes;
+    private final int maxDeltas;
+    private final Timer latencyTimer;
+    private final Counter coalescedCounter;
+    private final Counter snapshotCounter;
+
+    public GameBroadcaster(JsonMapper jsonMapper,
+                           SimpMessagingTemplate messagingTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${game.broadcast.lanes:0}") int laneCount,
+                           @Value("${game.broadcast.max-deltas:16}") int maxDeltas) {
+        this.jsonMapper = jsonMapper;
+        this.messagingTemplate = messagingTemplate;
+        this.maxDeltas = maxDeltas;
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        this.lanes = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-broadcast-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.latencyTimer = Timer.builder("game.broadcast.latency")
+                .description("Time from publishing a game update until it is handed to the broker")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("game.broadcast.coalesced")
+                .description("Game updates joined to a broadcast that was already pending")
+                .register(meterRegistry);
+        this.snapshotCounter = Counter.builder("game.broadcast.snapshots")
+                .description("Broadcasts that replaced more than max-deltas pending deltas with a snapshot of the game")
+                .register(meterRegistry);
+        Gauge.builder("game.broadcast.queue.depth", queued, AtomicInteger::get)
+                .description("Game updates waiting to be broadcast")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes the message once the current transaction commits. The game is its state after the message
+     * (or later), sent instead of the deltas should they pile up.
+     */
+    public void publish(GameMessage message, Game game) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(message, game);
+                }
+            });
+        } else {
+            enqueue(message, game);
+        }
+    }
+
+    private void enqueue(GameMessage message, Game game) {
+        Long gameId = message.getId();
+        boolean[] created = new boolean[1];
+        pending.compute(gameId, (id, update) -> {
+            if (update == null) {
+                created[0] = true;
+                update = new Pending(System.nanoTime());
+            }
+            if (message.getGame() != null) {
+                // a snapshot replaces whatever was sent before it
+                queued.addAndGet(-update.messages.size());
+                update.messages.clear();
+                update.game = game;
+            } else if (update.game == null || game.getMoveCount() >= update.game.getMoveCount()) {
+                update.game = game;
+            }
+            update.messages.add(message);
+            return update;
+        });
+        queued.incrementAndGet();
+        if (created[0]) {
+            lanes[Math.floorMod(Long.hashCode(gameId), lanes.length)].execute(() -> send(gameId));
+        } else {
+            coalescedCounter.increment();
+        }
+    }
+
+    private void send(Long gameId) {
+        Pending update = pending.remove(gameId);
+        if (update == null) {
+            return;
+        }
+        queued.addAndGet(-update.messages.size());
+        List<GameMessage> messages = update.messages;
+        if (messages.size() > maxDeltas) {
+            messages = List.of(snapshotOf(update.game));
+            snapshotCounter.increment();
+        }
+        try {
+            messagingTemplate.send("/topic/game/" + gameId, toMessage(messages));
+        } catch (RuntimeException e) {
+            log.warn("Failed to broadcast update for gameId={}", gameId, e);
+        }
+        latencyTimer.record(System.nanoTime() - update.enqueuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A message carrying the whole game, which subscribers take as is instead of applying deltas.
+     */
+    static GameMessage snapshotOf(Game game) {
+        GameMessage message = new GameMessage();
+        message.setId(game.getId());
+        message.setSequence(game.getMoveCount());
+        if (game.getStatus() != GameStatus.IN_PROGRESS) {
+            message.setStatus(game.getStatus());
+        }
+        message.setGame(Game.copyOf(game));
+        return message;
+    }
+
+    @SneakyThrows
+    private Message<byte[]> toMessage(List<GameMessage> messages) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(jsonMapper.writeValueAsBytes(messages), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public void destroy() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * Guarded by the map: only changed inside compute calls for its game, and read once removed.
+     */
+    private static final class Pending {
+        private final List<GameMessage> messages = new ArrayList<>();
+        private final long enqueuedAt;
+        // latest state of the game seen with the messages
+        private Game game;
+
+        private Pending(long enqueuedAt) {
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-game mailboxes. Every game with moves in flight has its own queue: a chain of futures whose tail is
+ * kept in a map until the last move leaves. A move waits for the one before it on the same game and then runs
+ * on the calling thread, so moves on one game never conflict on this node while moves on other games,
+ * AI search included, are not held up at all. The optimistic-lock retry stays in place for moves made by other nodes.
+ * A waiting move blocks its thread, so at most max-depth moves are queued per game and any beyond that get a 429.
+ * The write-behind engine already applies moves one at a time per shard, so the mailbox stays out of its way.
+ */
+@Component
+public class GameMailbox {
+
+    private final boolean enabled;
+    private final int maxDepth;
+    private final ConcurrentMap<Long, Queue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    public GameMailbox(MeterRegistry meterRegistry,
+                       @Value("${game.move.mailbox.enabled:true}") boolean enabled,
+                       @Value("${game.move.mailbox.max-depth:16}") int maxDepth,
+                       @Value("${game.engine.write-behind.enabled:false}") boolean writeBehind) {
+        this.enabled = enabled && !writeBehind;
+        this.maxDepth = Math.max(maxDepth, 1);
+        this.waitTimer = Timer.builder("game.mailbox.wait")
+                .description("Time a move waited in its game's mailbox")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("game.mailbox.rejected")
+                .description("Moves rejected because their game's mailbox was full")
+                .register(meterRegistry);
+        Gauge.builder("game.mailbox.queue.depth", queued, AtomicInteger::get)
+                .description("Moves waiting in a mailbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the task once the moves queued before it on the same game are done. Runs it right away when disabled.
+     *
+     * @throws TooManyRequestsException when max-depth moves are already queued on the game
+     */
+    public <T> T call(Long gameId, Supplier<T> task) {
+        if (!enabled || gameId == null) {
+            return task.get();
+        }
+        long enqueuedAt = System.nanoTime();
+        Slot slot = new Slot();
+        queues.compute(gameId, (id, queue) -> admit(queue, slot));
+        if (!slot.admitted) {
+            rejections.increment();
+            throw new TooManyRequestsException("Too many moves queued on this game, try again shortly", 1);
+        }
+        try {
+            if (slot.previous != null) {
+                queued.incrementAndGet();
+                try {
+                    slot.previous.join();
+                } finally {
+                    queued.decrementAndGet();
+                }
+            }
+            waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            return task.get();
+        } finally {
+            slot.done.complete(null);
+            // the last one out clears the queue
+            queues.computeIfPresent(gameId, (id, queue) -> --queue.depth == 0 ? null : queue);
+        }
+    }
+
+    /**
+     * Runs the task once it is first in the mailboxes of all the games, such as a batch of moves.
+     * The mailboxes are entered in ascending game id, so two batches never wait for each other in a cycle.
+     */
+    public <T> T callAll(Collection<Long> gameIds, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        List<Long> ordered = gameIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        return callAll(ordered, 0, task);
+    }
+
+    private <T> T callAll(List<Long> gameIds, int index, Supplier<T> task) {
+        if (index == gameIds.size()) {
+            return task.get();
+        }
+        return call(gameIds.get(index), () -> callAll(gameIds, index + 1, task));
+    }
+
+    /**
+     * Appends the slot to the game's queue unless max-depth moves are in it already.
+     */
+    private Queue admit(Queue queue, Slot slot) {
+        if (queue == null) {
+            queue = new Queue();
+        } else if (queue.depth >= maxDepth) {
+            return queue;
+        }
+        slot.previous = queue.tail;
+        slot.admitted = true;
+        queue.tail = slot.done;
+        queue.depth++;
+        return queue;
+    }
+
+    /**
+     * Guarded by the map: only changed inside compute calls for its game.
+     */
+    private static final class Queue {
+        private CompletableFuture<Void> tail;
+        // moves in the queue, the running one included
+        private int depth;
+    }
+
+    private static final class Slot {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        // the move to wait for, null when first in the queue
+        private CompletableFuture<Void> previous;
+        private boolean admitted;
+    }
+}
@@ -0,0 +1,125 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.repository.GameRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.support.RetrySynchronizationManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Move metrics. Registered as a global {@link RetryListener}, so it brackets every {@code @Retryable}
+ * call including all optimistic-lock retries. The retryable label ("game.move", "game.move.batch")
+ * is used as the timer name. The count of games in progress is read from the database on a schedule,
+ * never by a scrape, so a scrape costs no query and no connection.
+ */
+@Slf4j
+@Component
+public class GameMetrics implements RetryListener {
+
+    private static final String METRIC_PREFIX = "game.";
+    private static final String METRIC_NAME = "game.metrics.name";
+    private static final String START_TIME = "game.metrics.start";
+    private static final String OUTCOME = "game.metrics.outcome";
+
+    private final MeterRegistry meterRegistry;
+    private final GameRepository gameRepository;
+    private final Timer publishTimer;
+    private final AtomicLong activeGames = new AtomicLong();
+
+    public GameMetrics(MeterRegistry meterRegistry, GameRepository gameRepository) {
+        this.meterRegistry = meterRegistry;
+        this.gameRepository = gameRepository;
+        this.publishTimer = Timer.builder("game.publish")
+                .description("Time spent publishing a game update")
+                .register(meterRegistry);
+        Gauge.builder("game.active", activeGames, AtomicLong::get)
+                .description("Games in progress, as of the last refresh")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${game.metrics.active-refresh-interval:30000}")
+    public void refreshActiveGames() {
+        try {
+            activeGames.set(gameRepository.countByStatus(GameStatus.IN_PROGRESS));
+        } catch (RuntimeException e) {
+            log.warn("Failed to count the games in progress", e);
+        }
+    }
+
+    public void markDuplicate() {
+        RetryContext context = RetrySynchronizationManager.getContext();
+        if (context != null) {
+            context.setAttribute(OUTCOME, "duplicate");
+        }
+    }
+
+    public void recordPublish(Runnable publish) {
+        publishTimer.record(publish);
+    }
+
+    @Override
+    public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+        String label = callback.getLabel();
+        if (label != null && label.startsWith(METRIC_PREFIX)) {
+            context.setAttribute(METRIC_NAME, label);
+            context.setAttribute(START_TIME, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        Object name = context.getAttribute(METRIC_NAME);
+        if (name != null && isOptimisticLockFailure(throwable)) {
+            Counter.builder(name + ".retries")
+                    .description("Attempts that failed on an optimistic lock and were retried")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+        Object name = context.getAttribute(METRIC_NAME);
+        if (name == null) {
+            return;
+        }
+        Timer.builder(name.toString())
+                .description("Calls including retries")
+                .tag("outcome", outcome(context, throwable))
+                .register(meterRegistry)
+                .record(System.nanoTime() - (long) context.getAttribute(START_TIME), TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(RetryContext context, Throwable throwable) {
+        if (throwable == null) {
+            Object outcome = context.getAttribute(OUTCOME);
+            return outcome != null ? outcome.toString() : "success";
+        }
+        if (throwable instanceof GameException) {
+            return "validation_error";
+        }
+        if (isOptimisticLockFailure(throwable)) {
+            return "retries_exhausted";
+        }
+        return "error";
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable throwable) {
+        return throwable instanceof ObjectOptimisticLockingFailureException || throwable instanceof OptimisticLockException;
+    }
+}
@@ -0,0 +1,71 @@
+package dev.abozhik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Games as served by GET /api/game/{id}, already serialized, with the ETag of the version they were read at.
+ * Loading and invalidating the same game are serialized by the cache, so a load that read the game before a change
+ * committed is dropped by the invalidation that follows the commit. Invalidation is local to this node, so with
+ * the broker relay (several nodes) the cache is off and every GET reads the game; entries also expire after ttl
+ * as a bound on staleness should a change slip past invalidation.
+ */
+@Component
+public class GameResponseCache {
+
+    // null when disabled
+    private final Cache<Long, Entry> cache;
+
+    public GameResponseCache(MeterRegistry meterRegistry,
+                             @Value("${game.response-cache.max-size:10000}") long maxSize,
+                             @Value("${game.response-cache.ttl:5000}") long ttlMillis,
+                             @Value("${game.broker.relay.enabled:false}") boolean relayEnabled) {
+        if (relayEnabled || maxSize <= 0) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "game-responses");
+    }
+
+    public Entry get(Long gameId, Function<Long, Entry> loader) {
+        return cache != null ? cache.get(gameId, loader) : loader.apply(gameId);
+    }
+
+    /**
+     * Drops the game after the current transaction commits, or right away outside of one.
+     */
+    public void invalidate(Long gameId) {
+        if (cache == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(gameId);
+                }
+            });
+        } else {
+            cache.invalidate(gameId);
+        }
+    }
+
+    /**
+     * The serialized game and its strong ETag, null when the game has no stable version to derive one from.
+     */
+    public record Entry(String eTag, byte[] json) {}
+}
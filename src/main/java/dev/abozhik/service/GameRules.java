@@ -0,0 +1,77 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.constants.GameConstants;
+import dev.abozhik.model.entity.Game;
+
+final class GameRules {
+
+    private GameRules() {}
+
+    static void validateVariant(int boardSize, int winLength) {
+        if (boardSize < GameConstants.MIN_BOARD_SIZE || boardSize > GameConstants.MAX_BOARD_SIZE) {
+            throw new GameException("Invalid board size. Size must be between " + GameConstants.MIN_BOARD_SIZE
+                    + " and " + GameConstants.MAX_BOARD_SIZE);
+        }
+        if (winLength < GameConstants.MIN_BOARD_SIZE || winLength > boardSize) {
+            throw new GameException("Invalid win length. Win length must be between " + GameConstants.MIN_BOARD_SIZE
+                    + " and the board size");
+        }
+    }
+
+    static void validateMove(Game game, int position, GamePlayer player) {
+        int cells = game.getBoardSize() * game.getBoardSize();
+        if (position < 0 || position >= cells) {
+            throw new GameException("Invalid position. Position must be between 0 and " + (cells - 1));
+        }
+
+        if (game.getStatus() != GameStatus.IN_PROGRESS) {
+            throw new GameException("Game is already finished");
+        }
+
+        if (game.getCurrentPlayer() != player) {
+            throw new GameException("It's not your turn");
+        }
+
+        if (Board.isOccupied(game.getCells(), position)) {
+            throw new GameException("Position already taken");
+        }
+    }
+
+    static void applyMove(Game game, int position) {
+        GamePlayer player = game.getCurrentPlayer();
+        game.setMoveCount(game.getMoveCount() + 1);
+        GameStatus status = play(game.getCells(), game.getBoardSize(), game.getWinLength(), position, player, game.getMoveCount());
+        if (status == GameStatus.IN_PROGRESS) {
+            game.setCurrentPlayer(getNextPlayer(player));
+        } else {
+            game.setStatus(status);
+        }
+    }
+
+    /**
+     * Places the player's stone on a validated empty cell and returns the status it leads to. moveCount includes this move.
+     * Works on the bare board, so the simulator shares it with live games.
+     */
+    static GameStatus play(byte[] cells, int boardSize, int winLength, int position, GamePlayer player, int moveCount) {
+        Board.place(cells, position, player);
+        if (Board.isWinningMove(cells, boardSize, winLength, position)) {
+            return player.getWinStatus();
+        }
+        return moveCount == cells.length ? GameStatus.DRAW : GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Ends the game as lost by the side to move.
+     */
+    static void forfeit(Game game) {
+        game.setStatus(getNextPlayer(game.getCurrentPlayer()).getWinStatus());
+    }
+
+    static GamePlayer getNextPlayer(GamePlayer player) {
+        return player == GamePlayer.X ? GamePlayer.O : GamePlayer.X;
+    }
+}
@@ -2,26 +2,48 @@ package dev.abozhik.service;
 
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import dev.abozhik.exception.GameException;
+import dev.abozhik.exception.TooManyRequestsException;
+import dev.abozhik.model.BatchMoveRequest;
 import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GamePage;
 import dev.abozhik.model.GamePlayer;
 import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.MoveResult;
 import dev.abozhik.model.constants.GameConstants;
 import dev.abozhik.model.entity.Game;
+import dev.abozhik.model.entity.MoveEvent;
 import dev.abozhik.model.entity.ProcessedRequest;
 import dev.abozhik.repository.GameRepository;
 import dev.abozhik.repository.ProcessedRequestRepository;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.OptimisticLockException;
+import io.micrometer.core.annotation.Timed;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Limit;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -29,140 +51,422 @@ public class GameService {
 
     private final JsonMapper jsonMapper;
     private final GameRepository gameRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final GameBroadcaster gameBroadcaster;
+    private final GameMetrics gameMetrics;
     private final ProcessedRequestRepository processedRequestRepository;
+    private final ProcessedRequestCache processedRequestCache;
+    private final WriteBehindGameEngine writeBehindEngine;
+    private final GameAi gameAi;
+    private final MoveHistory moveHistory;
+    private final TurnTimer turnTimer;
+    private final GameResponseCache gameResponseCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
 
     public GameService(JsonMapper jsonMapper,
                        GameRepository gameRepository,
-                       SimpMessagingTemplate messagingTemplate,
-                       ProcessedRequestRepository processedRequestRepository) {
+                       GameBroadcaster gameBroadcaster,
+                       GameMetrics gameMetrics,
+                       ProcessedRequestRepository processedRequestRepository,
+                       ProcessedRequestCache processedRequestCache,
+                       ObjectProvider<WriteBehindGameEngine> writeBehindEngine,
+                       GameAi gameAi,
+                       MoveHistory moveHistory,
+                       TurnTimer turnTimer,
+                       GameResponseCache gameResponseCache,
+                       EntityManager entityManager,
+                       PlatformTransactionManager transactionManager) {
         this.jsonMapper = jsonMapper;
         this.gameRepository = gameRepository;
-        this.messagingTemplate = messagingTemplate;
+        this.gameBroadcaster = gameBroadcaster;
+        this.gameMetrics = gameMetrics;
         this.processedRequestRepository = processedRequestRepository;
+        this.processedRequestCache = processedRequestCache;
+        this.writeBehindEngine = writeBehindEngine.getIfAvailable();
+        this.gameAi = gameAi;
+        this.moveHistory = moveHistory;
+        this.turnTimer = turnTimer;
+        this.gameResponseCache = gameResponseCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
+    @Timed(value = "game.create", description = "createGame calls")
     public Game createGame() {
-        Game game = gameRepository.save(new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X));
-        publishGameUpdate(game);
-        return game;
+        return createGame(GameConstants.DEFAULT_BOARD_SIZE, GameConstants.DEFAULT_WIN_LENGTH, null);
     }
 
-    @SneakyThrows
     @Transactional
+    @Timed(value = "game.create", description = "createGame calls")
+    public Game createGame(int boardSize, int winLength, GamePlayer aiPlayer) {
+        GameRules.validateVariant(boardSize, winLength);
+        Game game = new Game(boardSize, winLength);
+        game.setAiPlayer(aiPlayer);
+        int reply = gameAi.respond(game);
+        game = gameRepository.save(game);
+        if (reply >= 0) {
+            MoveHistory.Entries history = new MoveHistory.Entries();
+            moveHistory.record(game, reply, history);
+            moveHistory.store(history);
+            publishMoves(Map.of(game.getId(), game), history);
+        }
+        turnTimer.update(game);
+        return game;
+    }
+
+    /**
+     * Applies the move, and the AI reply in games against the AI. The game is read and played outside of
+     * a transaction, so an AI search never holds a connection; the short write transaction then saves it only
+     * if its version is unchanged, and a conflict is retried from the start.
+     */
     @Retryable(
             retryFor = {ObjectOptimisticLockingFailureException.class, OptimisticLockException.class},
             maxAttemptsExpression = "${game.move.retry.max-attempts:3}",
-            backoff = @Backoff(delayExpression = "${game.move.retry.delay:100}")
+            backoff = @Backoff(delayExpression = "${game.move.retry.delay:100}"),
+            label = "game.move"
     )
     public Game makeMove(Long gameId, int position, GamePlayer player, String requestId) {
-        if (isDuplicateRequest(requestId)) {
-            return getResponseFromProcessedRequest(requestId);
+        Game processedResponse = findProcessedResponse(requestId);
+        if (processedResponse != null) {
+            gameMetrics.markDuplicate();
+            return processedResponse;
+        }
+
+        if (writeBehindEngine != null) {
+            log.info("Move gameId={}, position={}, reqId={} (write-behind)", gameId, position, requestId);
+            MoveHistory.Entries history = new MoveHistory.Entries();
+            Game game = writeBehindEngine.makeMove(gameId, position, player, requestId, history);
+            if (requestId != null) {
+                processedRequestCache.put(requestId, game);
+            }
+            publishMoves(Map.of(gameId, game), history);
+            turnTimer.update(game);
+            return game;
         }
 
         Game game = gameRepository.findById(gameId)
                 .orElseThrow(() -> new GameException("Game not found with id: " + gameId));
         
         log.info("Move gameId={}, position={}, reqId={}", gameId, position, requestId);
-        validateMove(game, position, player != null ? player : game.getCurrentPlayer());
-        applyMove(game, position);
+        GameRules.validateMove(game, position, player != null ? player : game.getCurrentPlayer());
+        MoveHistory.Entries history = new MoveHistory.Entries();
+        play(game, position, history);
+
+        return transactionTemplate.execute(status -> {
+            Game savedGame = gameRepository.save(game);
+            moveHistory.store(history);
+
+            if (requestId != null) {
+                storeProcessedRequest(requestId, savedGame);
+            }
+
+            publishMoves(Map.of(gameId, savedGame), history);
+            turnTimer.update(savedGame);
+            gameResponseCache.invalidate(gameId);
+            return savedGame;
+        });
+    }
+
+    /**
+     * Applies the moves in order. As with single moves, the games are played outside of a transaction
+     * and saved together in one short transaction guarded by their versions.
+     */
+    @Retryable(
+            retryFor = {ObjectOptimisticLockingFailureException.class, OptimisticLockException.class},
+            maxAttemptsExpression = "${game.move.retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${game.move.retry.delay:100}"),
+            label = "game.move.batch"
+    )
+    public List<MoveResult> makeMoves(List<BatchMoveRequest> moves) {
+        Map<String, Game> processedResponses = findProcessedResponses(moves);
+
+        Map<Long, Game> games = new HashMap<>();
+        if (writeBehindEngine == null) {
+            Set<Long> gameIds = new HashSet<>();
+            for (BatchMoveRequest move : moves) {
+                if (move.getGameId() != null && !processedResponses.containsKey(move.getRequestId())) {
+                    gameIds.add(move.getGameId());
+                }
+            }
+            gameRepository.findAllById(gameIds).forEach(game -> games.put(game.getId(), game));
+        }
 
-        Game savedGame = gameRepository.save(game);
+        log.info("Batch of {} moves on {} games", moves.size(), games.size());
+        List<MoveResult> results = new ArrayList<>(moves.size());
+        Map<String, Game> newResponses = new LinkedHashMap<>();
+        Map<Long, Game> changedGames = new LinkedHashMap<>();
+        MoveHistory.Entries history = new MoveHistory.Entries();
+        for (BatchMoveRequest move : moves) {
+            String requestId = move.getRequestId();
+            Game processedResponse = requestId != null ? processedResponses.get(requestId) : null;
+            if (processedResponse != null) {
+                results.add(MoveResult.success(move, processedResponse));
+                continue;
+            }
+
+            try {
+                Game response;
+                if (writeBehindEngine != null) {
+                    response = writeBehindEngine.makeMove(move.getGameId(), move.getPosition(), move.getPlayer(), requestId, history);
+                    changedGames.put(response.getId(), response);
+                } else {
+                    response = applyBatchMove(move, games, changedGames, history);
+                }
+                if (requestId != null) {
+                    processedResponses.put(requestId, response);
+                    newResponses.put(requestId, response);
+                }
+                results.add(MoveResult.success(move, response));
+            } catch (GameException | TooManyRequestsException e) {
+                results.add(MoveResult.failure(move, e.getMessage()));
+            }
+        }
 
-        if (requestId != null) {
-            storeProcessedRequest(requestId, savedGame);
+        if (writeBehindEngine != null) {
+            newResponses.forEach(processedRequestCache::put);
+            publishMoves(changedGames, history);
+            changedGames.values().forEach(turnTimer::update);
+            return results;
         }
 
-        publishGameUpdate(savedGame);
-        return savedGame;
+        transactionTemplate.executeWithoutResult(status -> {
+            gameRepository.saveAll(changedGames.values());
+            storeProcessedRequests(newResponses);
+            moveHistory.store(history);
+            publishMoves(changedGames, history);
+            changedGames.values().forEach(turnTimer::update);
+            changedGames.keySet().forEach(gameResponseCache::invalidate);
+        });
+        return results;
     }
 
-    private boolean isDuplicateRequest(String requestId) {
-        return requestId != null && processedRequestRepository.existsById(requestId);
+    private Game applyBatchMove(BatchMoveRequest move, Map<Long, Game> games, Map<Long, Game> changedGames,
+                                MoveHistory.Entries history) {
+        Game game = games.get(move.getGameId());
+        if (game == null) {
+            throw new GameException("Game not found with id: " + move.getGameId());
+        }
+        GameRules.validateMove(game, move.getPosition(), move.getPlayer() != null ? move.getPlayer() : game.getCurrentPlayer());
+        play(game, move.getPosition(), history);
+        changedGames.put(game.getId(), game);
+        return Game.copyOf(game);
     }
 
-    @SneakyThrows
-    private Game getResponseFromProcessedRequest(String requestId) {
-        ProcessedRequest processedRequest = processedRequestRepository.findById(requestId)
-                .orElseThrow(() -> new GameException("Processed request not found"));
-        return jsonMapper.readValue(processedRequest.getResponse(), Game.class);
+    private void play(Game game, int position, MoveHistory.Entries history) {
+        GameRules.applyMove(game, position);
+        moveHistory.record(game, position, history);
+        int reply = gameAi.respond(game);
+        if (reply >= 0) {
+            moveHistory.record(game, reply, history);
+        }
     }
 
-    private void validateMove(Game game, int position, GamePlayer player) {
-        if (game.getStatus() != GameStatus.IN_PROGRESS) {
-            throw new GameException("Game is already finished");
+    private Map<String, Game> findProcessedResponses(List<BatchMoveRequest> moves) {
+        Map<String, Game> responses = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (BatchMoveRequest move : moves) {
+            String requestId = move.getRequestId();
+            if (requestId == null || responses.containsKey(requestId)) {
+                continue;
+            }
+            Game cached = processedRequestCache.get(requestId);
+            if (cached != null) {
+                responses.put(requestId, cached);
+            } else {
+                missing.add(requestId);
+            }
         }
 
-        if (game.getCurrentPlayer() != player) {
-            throw new GameException("It's not your turn");
+        if (!missing.isEmpty()) {
+            for (ProcessedRequest processedRequest : processedRequestRepository.findAllById(missing)) {
+                Game response = processedRequest.getResponse();
+                processedRequestCache.put(processedRequest.getRequestId(), response);
+                responses.put(processedRequest.getRequestId(), response);
+            }
         }
+        return responses;
+    }
 
-        char[] board = game.getBoard().toCharArray();
-        if (board[position] != ' ') {
-            throw new GameException("Position already taken");
+    private Game findProcessedResponse(String requestId) {
+        if (requestId == null) {
+            return null;
         }
+
+        Game cached = processedRequestCache.get(requestId);
+        if (cached != null) {
+            return cached;
+        }
+
+        ProcessedRequest processedRequest = processedRequestRepository.findById(requestId).orElse(null);
+        if (processedRequest == null) {
+            return null;
+        }
+        Game response = processedRequest.getResponse();
+        processedRequestCache.put(requestId, response);
+        return response;
     }
 
-    private void applyMove(Game game, int position) {
-        char[] board = game.getBoard().toCharArray();
-        board[position] = game.getCurrentPlayer().getSymbol();
-        game.setBoard(String.valueOf(board));
-        if (checkWinner(board)) {
-            game.setStatus(game.getCurrentPlayer().getWinStatus());
-        } else if (isBoardFull(board)) {
-            game.setStatus(GameStatus.DRAW);
-        } else {
-            game.setCurrentPlayer(getNextPlayer(game));
+    private void storeProcessedRequest(String requestId, Game game) {
+        storeProcessedRequests(Map.of(requestId, game));
+    }
+
+    private void storeProcessedRequests(Map<String, Game> responses) {
+        if (responses.isEmpty()) {
+            return;
         }
+        List<ProcessedRequest> processedRequests = new ArrayList<>(responses.size());
+        for (Map.Entry<String, Game> response : responses.entrySet()) {
+            ProcessedRequest processedRequest = new ProcessedRequest();
+            processedRequest.setRequestId(response.getKey());
+            processedRequest.setResponse(response.getValue());
+            processedRequests.add(processedRequest);
+        }
+        processedRequestRepository.saveAll(processedRequests);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                responses.forEach(processedRequestCache::put);
+            }
+        });
     }
 
-    private GamePlayer getNextPlayer(Game game) {
-        return game.getCurrentPlayer().equals(GamePlayer.X) ? GamePlayer.O : GamePlayer.X;
+    /**
+     * Broadcasts one delta per move. The sequence is the move number, so a subscriber that sees a gap
+     * knows it missed a move and reloads the game.
+     */
+    private void publishMoves(Map<Long, Game> games, MoveHistory.Entries moves) {
+        for (MoveEvent move : moves.events()) {
+            Game game = games.get(move.getGameId());
+            GameMessage message = new GameMessage();
+            message.setId(move.getGameId());
+            message.setSequence(move.getMoveNumber());
+            message.setPosition(move.getPosition());
+            message.setPlayer(move.getPlayer());
+            if (move.getMoveNumber() == game.getMoveCount() && game.getStatus() != GameStatus.IN_PROGRESS) {
+                message.setStatus(game.getStatus());
+            }
+            gameMetrics.recordPublish(() -> gameBroadcaster.publish(message, game));
+        }
     }
 
-    @SneakyThrows
-    private void storeProcessedRequest(String requestId, Game game) {
-        ProcessedRequest processedRequest = new ProcessedRequest();
-        processedRequest.setRequestId(requestId);
-        processedRequest.setResponse(jsonMapper.writeValueAsString(game));
-        processedRequestRepository.save(processedRequest);
+    /**
+     * Forfeits the games that are still waiting for the move after the given move count: the side to move loses.
+     * Returns the IDs of the forfeited games. Games moved on since, or already over, are left alone.
+     */
+    @Transactional
+    public List<Long> forfeitIdleGames(Map<Long, Integer> moveCounts) {
+        List<Long> forfeited = new ArrayList<>();
+        if (writeBehindEngine != null) {
+            moveCounts.forEach((gameId, moveCount) -> {
+                Game game = writeBehindEngine.forfeitIfIdle(gameId, moveCount);
+                if (game != null) {
+                    publishStatus(game);
+                    forfeited.add(gameId);
+                }
+            });
+        } else {
+            for (Game game : gameRepository.findAllById(moveCounts.keySet())) {
+                if (game.getStatus() == GameStatus.IN_PROGRESS && game.getMoveCount() == moveCounts.get(game.getId())) {
+                    GameRules.forfeit(game);
+                    publishStatus(game);
+                    gameResponseCache.invalidate(game.getId());
+                    forfeited.add(game.getId());
+                }
+            }
+        }
+        if (!forfeited.isEmpty()) {
+            log.info("Forfeited {} games on turn timeout", forfeited.size());
+        }
+        return forfeited;
     }
 
-    private void publishGameUpdate(Game game) {
+    /**
+     * Broadcasts a status change that is not a move, such as a forfeit. It carries the sequence of the last move.
+     */
+    private void publishStatus(Game game) {
         GameMessage message = new GameMessage();
         message.setId(game.getId());
-        message.setBoard(game.getBoard());
-        message.setCurrentPlayer(game.getCurrentPlayer());
+        message.setSequence(game.getMoveCount());
         message.setStatus(game.getStatus());
-        messagingTemplate.convertAndSend("/topic/game/" + game.getId(), message);
+        gameMetrics.recordPublish(() -> gameBroadcaster.publish(message, game));
+    }
+
+    public GamePage getGames(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo, Long cursor, int size) {
+        List<Game> games = gameRepository.findPage(status, createdFrom, createdTo, cursor, Limit.of(size + 1));
+        if (games.size() <= size) {
+            return new GamePage(games, null);
+        }
+        List<Game> page = games.subList(0, size);
+        return new GamePage(page, page.get(size - 1).getId());
     }
 
-    private boolean checkWinner(char[] board) {
-        int[][] winPatterns = {
-                {0, 1, 2}, {3, 4, 5}, {6, 7, 8}, // rows
-                {0, 3, 6}, {1, 4, 7}, {2, 5, 8}, // columns
-                {0, 4, 8}, {2, 4, 6}             // diagonals
-        };
+    @SneakyThrows
+    @Transactional(readOnly = true)
+    public void exportGames(GameStatus status, LocalDateTime createdFrom, LocalDateTime createdTo, OutputStream out) {
+        try (Stream<Game> games = gameRepository.streamAll(status, createdFrom, createdTo)) {
+            Iterator<Game> iterator = games.iterator();
+            while (iterator.hasNext()) {
+                Game game = iterator.next();
+                out.write(jsonMapper.writeValueAsBytes(game));
+                out.write('\n');
+                entityManager.detach(game);
+            }
+        }
+        out.flush();
+    }
 
-        for (int[] pattern : winPatterns) {
-            char c = board[pattern[0]];
-            if (c != ' ' && c == board[pattern[1]] && c == board[pattern[2]]) {
-                return true;
+    @SneakyThrows
+    @Transactional(readOnly = true)
+    public void exportHistory(Long gameId, OutputStream out) {
+        try (Stream<MoveEvent> events = moveHistory.streamMoves(gameId)) {
+            Iterator<MoveEvent> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                MoveEvent event = iterator.next();
+                out.write(jsonMapper.writeValueAsBytes(event));
+                out.write('\n');
+                entityManager.detach(event);
             }
         }
-        return false;
+        out.flush();
     }
 
-    private boolean isBoardFull(char[] board) {
-        return IntStream.range(0, board.length).noneMatch(i -> board[i] == ' ');
+    @Transactional(readOnly = true)
+    public Game replayGame(Long gameId, Integer moveNumber) {
+        Game current = gameRepository.findById(gameId).orElseThrow(() -> new GameException("Game not found"));
+        if (moveNumber != null && (moveNumber < 0 || moveNumber > current.getMoveCount())) {
+            throw new GameException("Invalid move number. Move number must be between 0 and " + current.getMoveCount());
+        }
+        return moveHistory.rebuild(current, moveNumber != null ? moveNumber : current.getMoveCount());
     }
 
-    public List<Game> getAllGames() {
-        return gameRepository.findAll();
+    /**
+     * The game serialized as GET returns it. Unchanged games come from the cache with an ETag from their version.
+     * Games held by the write-behind engine change in memory without a new version, so they are read every time
+     * and have no ETag.
+     */
+    public GameResponseCache.Entry getGameResponse(Long gameId) {
+        if (writeBehindEngine != null) {
+            return new GameResponseCache.Entry(null, serialize(getGame(gameId)));
+        }
+        return gameResponseCache.get(gameId, id -> {
+            Game game = gameRepository.findById(id).orElseThrow(() -> new GameException("Game not found"));
+            return new GameResponseCache.Entry(String.valueOf(game.getVersion()), serialize(game));
+        });
     }
 
     public Game getGame(Long gameId) {
+        if (writeBehindEngine != null) {
+            Optional<Game> resident = writeBehindEngine.findGame(gameId);
+            if (resident.isPresent()) {
+                return resident.get();
+            }
+        }
         return gameRepository.findById(gameId).orElseThrow(() -> new GameException("Game not found"));
     }
+
+    @SneakyThrows
+    private byte[] serialize(Game game) {
+        return jsonMapper.writeValueAsBytes(game);
+    }
 } 
\ No newline at end of file
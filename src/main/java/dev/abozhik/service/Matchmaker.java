@@ -0,0 +1,178 @@
+package dev.abozhik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.MatchRequest;
+import dev.abozhik.model.MatchResult;
+import dev.abozhik.model.MatchStatus;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairs players who want a game of the same variant (and rating bucket), creates the game and tells
+ * both players on /user/queue/matches. The player who waited plays X.
+ * A ticket belongs to its owner, a name only the server hands out: the STOMP connection it came from,
+ * or the secret returned for a request over HTTP. Only the owner can cancel it or hears about its match;
+ * the player ID is just the name shown to the opponent. How a ticket ended is also kept for result-ttl ms, so an owner
+ * that was not listening when it was matched can still ask. Two tickets of the same client or player are never paired.
+ */
+@Slf4j
+@Service
+public class Matchmaker {
+
+    private static final int MAX_RATING = 4000;
+
+    private final GameService gameService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PairingQueue<Bucket, Ticket> queue = new PairingQueue<>();
+    private final ConcurrentMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Cache<String, MatchResult> results;
+    private final int ratingBucketWidth;
+    private final long timeoutNanos;
+    private final Timer waitTimer;
+
+    public Matchmaker(GameService gameService,
+                      SimpMessagingTemplate messagingTemplate,
+                      MeterRegistry meterRegistry,
+                      @Value("${game.matchmaking.rating-bucket-width:200}") int ratingBucketWidth,
+                      @Value("${game.matchmaking.timeout:60000}") long timeoutMillis,
+                      @Value("${game.matchmaking.result-ttl:300000}") long resultTtlMillis) {
+        this.gameService = gameService;
+        this.messagingTemplate = messagingTemplate;
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(resultTtlMillis))
+                .build();
+        this.ratingBucketWidth = ratingBucketWidth;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.waitTimer = Timer.builder("game.matchmaking.wait")
+                .description("Time from joining the matchmaking queue until matched")
+                .register(meterRegistry);
+        Gauge.builder("game.matchmaking.waiting", tickets, ConcurrentMap::size)
+                .description("Players waiting for an opponent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a ticket of the owner, sent by the client (as told apart by admission control).
+     */
+    public MatchResult enqueue(String owner, String client, MatchRequest request) {
+        String playerId = request.getPlayerId();
+        if (playerId == null || playerId.isBlank()) {
+            throw new GameException("Player ID is required for matchmaking");
+        }
+        GameRules.validateVariant(request.getSize(), request.getWinLength());
+        Ticket ticket = new Ticket(owner, client, playerId, bucket(request), System.nanoTime());
+        if (tickets.putIfAbsent(owner, ticket) != null) {
+            throw new GameException("Player is already waiting for an opponent");
+        }
+
+        Ticket opponent = queue.offer(ticket.bucket(), ticket, Ticket::pairable);
+        if (opponent == ticket) {
+            tickets.remove(owner, ticket);
+            throw new GameException("Player is already waiting for an opponent");
+        }
+        if (opponent == null) {
+            log.debug("Player {} waits in {}", playerId, ticket.bucket());
+            return MatchResult.of(MatchStatus.WAITING);
+        }
+        long now = System.nanoTime();
+        tickets.remove(opponent.owner(), opponent);
+        tickets.remove(owner, ticket);
+        waitTimer.record(now - opponent.enqueuedAt(), TimeUnit.NANOSECONDS);
+        waitTimer.record(now - ticket.enqueuedAt(), TimeUnit.NANOSECONDS);
+
+        Game game;
+        try {
+            game = gameService.createGame(request.getSize(), request.getWinLength(), null);
+        } catch (RuntimeException e) {
+            notify(opponent.owner(), MatchResult.of(MatchStatus.CANCELLED));
+            throw e;
+        }
+        log.info("Matched {} (X) with {} (O) in game {}", opponent.playerId(), playerId, game.getId());
+        notify(opponent.owner(), MatchResult.matched(game.getId(), GamePlayer.X, playerId));
+        MatchResult result = MatchResult.matched(game.getId(), GamePlayer.O, opponent.playerId());
+        notify(owner, result);
+        return result;
+    }
+
+    /**
+     * Takes the owner's ticket out of the queue. False if it was not waiting or has just been matched.
+     */
+    public boolean cancel(String owner) {
+        Ticket ticket = tickets.get(owner);
+        if (ticket == null || !queue.cancel(ticket.bucket(), ticket)) {
+            return false;
+        }
+        tickets.remove(owner, ticket);
+        return true;
+    }
+
+    /**
+     * Where the owner's ticket stands: WAITING while queued, else how it ended. Null if unknown or long gone.
+     */
+    public MatchResult status(String owner) {
+        if (tickets.containsKey(owner)) {
+            return MatchResult.of(MatchStatus.WAITING);
+        }
+        return results.getIfPresent(owner);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        if (event.getUser() != null) {
+            cancel(event.getUser().getName());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${game.matchmaking.sweep-interval:1000}")
+    public void expireTickets() {
+        long now = System.nanoTime();
+        for (Ticket ticket : tickets.values()) {
+            if (now - ticket.enqueuedAt() > timeoutNanos && queue.cancel(ticket.bucket(), ticket)) {
+                tickets.remove(ticket.owner(), ticket);
+                notify(ticket.owner(), MatchResult.of(MatchStatus.EXPIRED));
+            }
+        }
+    }
+
+    private Bucket bucket(MatchRequest request) {
+        int rating = -1;
+        if (ratingBucketWidth > 0 && request.getRating() != null) {
+            rating = Math.clamp(request.getRating(), 0, MAX_RATING) / ratingBucketWidth;
+        }
+        return new Bucket(request.getSize(), request.getWinLength(), rating);
+    }
+
+    private void notify(String owner, MatchResult result) {
+        results.put(owner, result);
+        try {
+            messagingTemplate.convertAndSendToUser(owner, "/queue/matches", result);
+        } catch (RuntimeException e) {
+            log.warn("Failed to notify a player of {}", result.getStatus(), e);
+        }
+    }
+
+    private record Bucket(int size, int winLength, int rating) {}
+
+    private record Ticket(String owner, String client, String playerId, Bucket bucket, long enqueuedAt) {
+        private static boolean pairable(Ticket waiting, Ticket offered) {
+            return !waiting.client().equals(offered.client()) && !waiting.playerId().equals(offered.playerId());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.model.entity.GameSnapshot;
+import dev.abozhik.model.entity.MoveEvent;
+import dev.abozhik.repository.GameSnapshotRepository;
+import dev.abozhik.repository.MoveEventRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of moves. Every applied move becomes a move_event row and every snapshot-interval
+ * moves a copy of the whole game goes to game_snapshot, so any position can be rebuilt from the last
+ * snapshot before it plus the events after that, without keeping history on the game row.
+ */
+@Service
+public class MoveHistory {
+
+    private final MoveEventRepository moveEventRepository;
+    private final GameSnapshotRepository gameSnapshotRepository;
+    private final EntityManager entityManager;
+    private final int snapshotInterval;
+
+    public MoveHistory(MoveEventRepository moveEventRepository,
+                       GameSnapshotRepository gameSnapshotRepository,
+                       EntityManager entityManager,
+                       @Value("${game.history.snapshot-interval:32}") int snapshotInterval) {
+        this.moveEventRepository = moveEventRepository;
+        this.gameSnapshotRepository = gameSnapshotRepository;
+        this.entityManager = entityManager;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Adds the move just applied to the game at position to the entries.
+     */
+    void record(Game game, int position, Entries entries) {
+        GamePlayer player = game.getCells()[position] == Board.X ? GamePlayer.X : GamePlayer.O;
+        entries.events.add(new MoveEvent(game.getId(), game.getMoveCount(), position, player));
+        if (game.getMoveCount() % snapshotInterval == 0) {
+            entries.snapshots.add(new GameSnapshot(Game.copyOf(game)));
+        }
+    }
+
+    /**
+     * Inserts the entries in the current transaction, as JDBC batches. Pending game updates are flushed
+     * first: Hibernate runs inserts before updates, and a concurrent move must fail on the version check
+     * (which is retried) rather than on the unique move number.
+     */
+    void store(Entries entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        if (!entries.events.isEmpty()) {
+            moveEventRepository.saveAll(entries.events);
+        }
+        if (!entries.snapshots.isEmpty()) {
+            gameSnapshotRepository.saveAll(entries.snapshots);
+        }
+    }
+
+    Stream<MoveEvent> streamMoves(Long gameId) {
+        return moveEventRepository.streamMoves(gameId, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * State of the game after moveNumber moves: the last snapshot at or before it with the later events applied.
+     * Only the board dimensions, AI side and creation time are taken from the current game. Games played before
+     * the log existed have no events to rebuild from and fail with a GameException instead of an empty board.
+     */
+    Game rebuild(Game current, int moveNumber) {
+        Game game = gameSnapshotRepository.findFirstByGameIdAndMoveNumberLessThanEqualOrderByMoveNumberDesc(current.getId(), moveNumber)
+                .map(snapshot -> Game.copyOf(snapshot.getState()))
+                .orElseGet(() -> initialState(current));
+        try (Stream<MoveEvent> events = moveEventRepository.streamMoves(current.getId(), game.getMoveCount(), moveNumber)) {
+            events.forEach(event -> {
+                if (event.getMoveNumber() != game.getMoveCount() + 1 || event.getPlayer() != game.getCurrentPlayer()) {
+                    throw new IllegalStateException("Move history of game " + current.getId()
+                            + " does not continue at move " + (game.getMoveCount() + 1));
+                }
+                GameRules.applyMove(game, event.getPosition());
+            });
+        }
+        if (game.getMoveCount() != moveNumber) {
+            throw new GameException("History not available for this game");
+        }
+        game.setVersion(null);
+        return game;
+    }
+
+    private static Game initialState(Game current) {
+        Game game = new Game(current.getBoardSize(), current.getWinLength());
+        game.setId(current.getId());
+        game.setAiPlayer(current.getAiPlayer());
+        game.setCreationDateTime(current.getCreationDateTime());
+        return game;
+    }
+
+    /**
+     * Events and snapshots of one unit of work, stored together.
+     */
+    static final class Entries {
+        private final List<MoveEvent> events = new ArrayList<>();
+        private final List<GameSnapshot> snapshots = new ArrayList<>();
+
+        List<MoveEvent> events() {
+            return events;
+        }
+
+        boolean isEmpty() {
+            return events.isEmpty() && snapshots.isEmpty();
+        }
+
+        void addAll(Entries other) {
+            events.addAll(other.events);
+            snapshots.addAll(other.snapshots);
+        }
+
+        /**
+         * Takes the entries of one game out of these and returns them.
+         */
+        Entries remove(Long gameId) {
+            Entries removed = new Entries();
+            for (Iterator<MoveEvent> iterator = events.iterator(); iterator.hasNext(); ) {
+                MoveEvent event = iterator.next();
+                if (event.getGameId().equals(gameId)) {
+                    removed.events.add(event);
+                    iterator.remove();
+                }
+            }
+            for (Iterator<GameSnapshot> iterator = snapshots.iterator(); iterator.hasNext(); ) {
+                GameSnapshot snapshot = iterator.next();
+                if (snapshot.getGameId().equals(gameId)) {
+                    removed.snapshots.add(snapshot);
+                    iterator.remove();
+                }
+            }
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.abozhik.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+
+/**
+ * Lock-free pairing of tickets by key. Every key has a single slot: an offer either takes the ticket
+ * waiting there, which pairs the two, or parks its own ticket in the empty slot. So at most one ticket
+ * waits per key and every operation is a couple of CAS on that slot. Slots are never removed,
+ * the key space has to be bounded.
+ */
+public class PairingQueue<K, T> {
+
+    private final ConcurrentMap<K, AtomicReference<T>> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the ticket waiting under key, now paired with this one, or null if this ticket waits instead.
+     */
+    public T offer(K key, T ticket) {
+        return offer(key, ticket, (waiting, offered) -> true);
+    }
+
+    /**
+     * Like {@link #offer(Object, Object)}, but a waiting ticket that may not be paired with this one stays where it is
+     * and the ticket itself is returned, unpaired.
+     */
+    public T offer(K key, T ticket, BiPredicate<T, T> pairable) {
+        AtomicReference<T> slot = slots.computeIfAbsent(key, k -> new AtomicReference<>());
+        while (true) {
+            T waiting = slot.get();
+            if (waiting == null) {
+                if (slot.compareAndSet(null, ticket)) {
+                    return null;
+                }
+            } else if (!pairable.test(waiting, ticket)) {
+                return ticket;
+            } else if (slot.compareAndSet(waiting, null)) {
+                return waiting;
+            }
+        }
+    }
+
+    /**
+     * Takes the ticket out of the queue. False if it is not waiting, e.g. because it was just paired.
+     */
+    public boolean cancel(K key, T ticket) {
+        AtomicReference<T> slot = slots.get(key);
+        return slot != null && slot.compareAndSet(ticket, null);
+    }
+}
@@ -0,0 +1,238 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perfect-play opponent for the classic 3x3 game. Every position is solved once with negamax into a
+ * transposition table keyed by the canonical form of the board under the 8 symmetries of the square,
+ * so a reply is a table lookup instead of a search. The table is built at startup, or loaded from
+ * game.ai.table-file when that is set (and written there on first start).
+ */
+@Slf4j
+@Component
+public class PerfectPlayAi {
+
+    static final int SIZE = 3;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int SYMMETRIES = 8;
+    private static final int FILE_MAGIC = 0x54545431;
+    private static final int EMPTY_KEY = -1;
+
+    // SYMMETRY[t][p] is the cell that p maps to under transform t (t & 4: mirror, t & 3: quarter turns)
+    private static final int[][] SYMMETRY = new int[SYMMETRIES][CELLS];
+    private static final int[][] INVERSE = new int[SYMMETRIES][CELLS];
+    // WEIGHT[t][p] = 3^SYMMETRY[t][p], so the base-3 code of a transformed board is a dot product
+    private static final int[][] WEIGHT = new int[SYMMETRIES][CELLS];
+
+    static {
+        for (int t = 0; t < SYMMETRIES; t++) {
+            for (int p = 0; p < CELLS; p++) {
+                int row = p / SIZE;
+                int column = (t & 4) != 0 ? SIZE - 1 - p % SIZE : p % SIZE;
+                for (int turn = 0; turn < (t & 3); turn++) {
+                    int rotated = column;
+                    column = SIZE - 1 - row;
+                    row = rotated;
+                }
+                SYMMETRY[t][p] = row * SIZE + column;
+                INVERSE[t][SYMMETRY[t][p]] = p;
+                WEIGHT[t][p] = (int) Math.pow(3, SYMMETRY[t][p]);
+            }
+        }
+    }
+
+    // open addressing on canonical codes; moves/scores are in canonical orientation
+    private final int[] keys;
+    private final byte[] moves;
+    private final byte[] scores;
+    private final long startupNanos;
+
+    public PerfectPlayAi(MeterRegistry meterRegistry, @Value("${game.ai.table-file:}") String tableFile) throws IOException {
+        long start = System.nanoTime();
+        Map<Integer, Entry> entries = tableFile.isBlank() ? solve() : loadOrSolve(Path.of(tableFile));
+
+        int capacity = Integer.highestOneBit(Math.max(entries.size(), 1) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.moves = new byte[capacity];
+        this.scores = new byte[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        entries.forEach((code, entry) -> {
+            int slot = slot(code);
+            keys[slot] = code;
+            moves[slot] = entry.move();
+            scores[slot] = entry.score();
+        });
+        this.startupNanos = System.nanoTime() - start;
+
+        log.info("Perfect-play table ready: {} positions, {} bytes, built in {} ms",
+                entries.size(), footprintBytes(), String.format("%.2f", startupNanos / 1e6));
+        Gauge.builder("game.ai.table.entries", this, PerfectPlayAi::entryCount)
+                .description("Canonical positions in the perfect-play table")
+                .register(meterRegistry);
+        Gauge.builder("game.ai.table.size", this, PerfectPlayAi::footprintBytes)
+                .description("Memory held by the perfect-play table")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        TimeGauge.builder("game.ai.table.startup", this, TimeUnit.NANOSECONDS, ai -> ai.startupNanos)
+                .description("Time spent building or loading the perfect-play table")
+                .register(meterRegistry);
+    }
+
+    public static boolean supports(int boardSize, int winLength) {
+        return boardSize == SIZE && winLength == SIZE;
+    }
+
+    public int bestMove(byte[] cells) {
+        int key = canonicalize(cells);
+        int canonical = key >>> 3;
+        int transform = key & (SYMMETRIES - 1);
+        int slot = slot(canonical);
+        if (keys[slot] != canonical) {
+            throw new IllegalStateException("Position is not in the perfect-play table: " + Board.toString(cells));
+        }
+        return INVERSE[transform][moves[slot]];
+    }
+
+    /**
+     * Game value for the player to move: positive wins (sooner is higher), 0 draws, negative loses.
+     */
+    public int score(byte[] cells) {
+        return scores[slot(canonicalize(cells) >>> 3)];
+    }
+
+    public int entryCount() {
+        int count = 0;
+        for (int key : keys) {
+            if (key != EMPTY_KEY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long footprintBytes() {
+        return (long) keys.length * Integer.BYTES + moves.length + scores.length;
+    }
+
+    private int slot(int code) {
+        int mask = keys.length - 1;
+        int slot = (code * 0x9E3779B9 >>> 16) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != code) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Smallest base-3 code of the board over all symmetries, shifted left by 3, with the transform that produced it in the low bits.
+     */
+    private static int canonicalize(byte[] cells) {
+        int canonical = Integer.MAX_VALUE;
+        int transform = 0;
+        for (int t = 0; t < SYMMETRIES; t++) {
+            int code = code(cells, t);
+            if (code < canonical) {
+                canonical = code;
+                transform = t;
+            }
+        }
+        return canonical << 3 | transform;
+    }
+
+    private static int code(byte[] cells, int transform) {
+        int[] weight = WEIGHT[transform];
+        int code = 0;
+        for (int p = 0; p < CELLS; p++) {
+            code += cells[p] * weight[p];
+        }
+        return code;
+    }
+
+    private static Map<Integer, Entry> solve() {
+        Map<Integer, Entry> entries = new HashMap<>();
+        negamax(Board.empty(SIZE), GamePlayer.X, 0, entries);
+        return entries;
+    }
+
+    private static int negamax(byte[] cells, GamePlayer player, int stones, Map<Integer, Entry> entries) {
+        int key = canonicalize(cells);
+        int canonical = key >>> 3;
+        int transform = key & (SYMMETRIES - 1);
+        Entry known = entries.get(canonical);
+        if (known != null) {
+            return known.score();
+        }
+
+        int best = Integer.MIN_VALUE;
+        int bestMove = -1;
+        GamePlayer opponent = player == GamePlayer.X ? GamePlayer.O : GamePlayer.X;
+        for (int p = 0; p < CELLS; p++) {
+            if (Board.isOccupied(cells, p)) {
+                continue;
+            }
+            Board.place(cells, p, player);
+            int score;
+            if (Board.isWinningMove(cells, SIZE, SIZE, p)) {
+                score = CELLS + 1 - (stones + 1);
+            } else if (stones + 1 == CELLS) {
+                score = 0;
+            } else {
+                score = -negamax(cells, opponent, stones + 1, entries);
+            }
+            cells[p] = Board.EMPTY;
+            if (score > best) {
+                best = score;
+                bestMove = p;
+            }
+        }
+        entries.put(canonical, new Entry((byte) SYMMETRY[transform][bestMove], (byte) best));
+        return best;
+    }
+
+    private static Map<Integer, Entry> loadOrSolve(Path file) throws IOException {
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != FILE_MAGIC) {
+                    throw new IOException("Not a perfect-play table: " + file);
+                }
+                int count = in.readInt();
+                Map<Integer, Entry> entries = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    entries.put(in.readUnsignedShort(), new Entry(in.readByte(), in.readByte()));
+                }
+                log.info("Loaded perfect-play table from {}", file);
+                return entries;
+            }
+        }
+
+        Map<Integer, Entry> entries = solve();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+                out.writeShort(entry.getKey());
+                out.writeByte(entry.getValue().move());
+                out.writeByte(entry.getValue().score());
+            }
+        }
+        log.info("Wrote perfect-play table to {}", file);
+        return entries;
+    }
+
+    private record Entry(byte move, byte score) {}
+}
@@ -0,0 +1,96 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+
+import java.util.SplittableRandom;
+
+/**
+ * One board played over and over by a simulation worker. The empty cells are kept in an array with
+ * swap-remove, so a random move is O(1), and nothing is allocated once the playout exists.
+ * Moves go through {@link GameRules#play}, the same rules live games use.
+ */
+final class Playout {
+
+    private final byte[] cells;
+    private final int size;
+    private final int winLength;
+    // free[0, freeCount) are the empty cells, slot[cell] is the index of cell in free
+    private final int[] free;
+    private final int[] slot;
+    private int freeCount;
+    private int moveCount;
+    private GamePlayer toMove;
+
+    Playout(int size, int winLength) {
+        this.cells = Board.empty(size);
+        this.size = size;
+        this.winLength = winLength;
+        this.free = new int[cells.length];
+        this.slot = new int[cells.length];
+        reset();
+    }
+
+    void reset() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = Board.EMPTY;
+            free[cell] = cell;
+            slot[cell] = cell;
+        }
+        freeCount = cells.length;
+        moveCount = 0;
+        toMove = GamePlayer.X;
+    }
+
+    GameStatus play(int position) {
+        moveCount++;
+        GameStatus status = GameRules.play(cells, size, winLength, position, toMove, moveCount);
+        int last = free[--freeCount];
+        free[slot[position]] = last;
+        slot[last] = slot[position];
+        toMove = GameRules.getNextPlayer(toMove);
+        return status;
+    }
+
+    byte[] cells() {
+        return cells;
+    }
+
+    int moveCount() {
+        return moveCount;
+    }
+
+    int randomMove(SplittableRandom random) {
+        return free[random.nextInt(freeCount)];
+    }
+
+    /**
+     * Completes a line if it can, blocks the opponent's if it has to, then takes the centre, else plays at random.
+     */
+    int heuristicMove(SplittableRandom random) {
+        int win = completingMove(Board.stone(toMove));
+        if (win >= 0) {
+            return win;
+        }
+        int block = completingMove(Board.stone(GameRules.getNextPlayer(toMove)));
+        if (block >= 0) {
+            return block;
+        }
+        int centre = size / 2 * size + size / 2;
+        return cells[centre] == Board.EMPTY ? centre : randomMove(random);
+    }
+
+    private int completingMove(byte stone) {
+        for (int i = 0; i < freeCount; i++) {
+            int cell = free[i];
+            cells[cell] = stone;
+            boolean wins = Board.isWinningMove(cells, size, winLength, cell);
+            cells[cell] = Board.EMPTY;
+            if (wins) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
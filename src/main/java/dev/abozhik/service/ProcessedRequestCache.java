@@ -0,0 +1,40 @@
+package dev.abozhik.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class ProcessedRequestCache {
+
+    private final Cache<String, Game> cache;
+
+    public ProcessedRequestCache(MeterRegistry meterRegistry,
+                                 @Value("${game.processed-requests.retention-hours:24}") int retentionHours,
+                                 @Value("${game.processed-requests.cache.max-size:100000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofHours(retentionHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "processed-requests");
+    }
+
+    public Game get(String requestId) {
+        return cache.getIfPresent(requestId);
+    }
+
+    public void put(String requestId, Game response) {
+        cache.put(requestId, response);
+    }
+
+    public void invalidate(String requestId) {
+        cache.invalidate(requestId);
+    }
+}
@@ -1,29 +1,96 @@
 package dev.abozhik.service;
 
 import dev.abozhik.repository.ProcessedRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class ProcessedRequestCleanupService {
 
     private final ProcessedRequestRepository processedRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter purgedCounter;
+    private final Timer batchTimer;
+    private final Timer runTimer;
 
     @Value("${game.processed-requests.retention-hours:24}")
     private int retentionHours;
 
-    public ProcessedRequestCleanupService(ProcessedRequestRepository processedRequestRepository) {
+    @Value("${game.processed-requests.cleanup-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${game.processed-requests.cleanup-batch-pause:50}")
+    private long batchPauseMillis;
+
+    public ProcessedRequestCleanupService(ProcessedRequestRepository processedRequestRepository,
+                                          PlatformTransactionManager transactionManager,
+                                          MeterRegistry meterRegistry) {
         this.processedRequestRepository = processedRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.purgedCounter = Counter.builder("game.processed-requests.purged")
+                .description("Processed requests deleted by the cleanup job")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("game.processed-requests.purge.batch")
+                .description("Duration of a single cleanup batch")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("game.processed-requests.cleanup")
+                .description("Duration of a whole cleanup run, including pauses between batches")
+                .register(meterRegistry);
     }
 
-    @Scheduled(cron = "${game.processed-requests.cleanup-cron:0 0 0 * * ?}")
-    @Transactional
+    @Scheduled(initialDelayString = "${game.processed-requests.cleanup-interval:60000}",
+            fixedDelayString = "${game.processed-requests.cleanup-interval:60000}")
     public void cleanupOldProcessedRequests() {
         LocalDateTime cutoffTime = LocalDateTime.now().minusHours(retentionHours);
-        processedRequestRepository.deleteByCreationDateTimeBefore(cutoffTime);
+        long startTime = System.nanoTime();
+        int batches = 0;
+        long total = 0;
+
+        int deleted;
+        do {
+            deleted = batchTimer.record(() -> deleteBatch(cutoffTime));
+            total += deleted;
+            batches++;
+        } while (deleted == batchSize && pause());
+
+        long elapsed = System.nanoTime() - startTime;
+        runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        purgedCounter.increment(total);
+        if (total > 0) {
+            log.info("Purged processed requests rows={}, batches={}, took={}ms",
+                    total, batches, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    private int deleteBatch(LocalDateTime cutoffTime) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<String> requestIds = processedRequestRepository.findRequestIdsCreatedBefore(
+                    cutoffTime, PageRequest.ofSize(batchSize));
+            return requestIds.isEmpty() ? 0 : processedRequestRepository.deleteByRequestIdIn(requestIds);
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.SimulationRequest;
+import dev.abozhik.model.SimulationResult;
+import dev.abozhik.model.SimulationStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless self-play between strategies, for evaluating the AI. The games are split in halves on a ForkJoinPool
+ * down to batches, and every batch plays its games on one reused {@link Playout} with its own SplittableRandom,
+ * split off the seed along the way, so the same seed gives the same games whatever the scheduling.
+ * Nothing is stored: the result is the win/draw tally.
+ * Only present with game.simulation.enabled. A run is capped in games times board cells and in time, a tournament
+ * as a whole rather than per pairing, and the pool is kept smaller than the machine so live games keep cores of their own.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "game.simulation.enabled", havingValue = "true")
+public class Simulator implements DisposableBean {
+
+    private static final String CSV_HEADER = "x,o,size,win_length,seed,games,wins_x,wins_o,draws,moves,elapsed_ms\n";
+
+    private final PerfectPlayAi perfectPlayAi;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final long maxCells;
+    private final long timeoutNanos;
+    private final Timer simulationTimer;
+    private final Counter gameCounter;
+
+    public Simulator(PerfectPlayAi perfectPlayAi,
+                     MeterRegistry meterRegistry,
+                     @Value("${game.simulation.parallelism:0}") int parallelism,
+                     @Value("${game.simulation.batch-size:1024}") int batchSize,
+                     @Value("${game.simulation.max-cells:100000000}") long maxCells,
+                     @Value("${game.simulation.timeout:60000}") long timeoutMillis) {
+        this.perfectPlayAi = perfectPlayAi;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.batchSize = batchSize;
+        this.maxCells = maxCells;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.simulationTimer = Timer.builder("game.simulation")
+                .description("Time spent simulating self-play games")
+                .register(meterRegistry);
+        this.gameCounter = Counter.builder("game.simulation.games")
+                .description("Self-play games simulated")
+                .register(meterRegistry);
+    }
+
+    public SimulationResult simulate(SimulationRequest request) {
+        GameRules.validateVariant(request.getSize(), request.getWinLength());
+        validateGames(request.getGames(), request.getSize(), 1);
+        return simulate(request, System.nanoTime() + timeoutNanos);
+    }
+
+    private SimulationResult simulate(SimulationRequest request, long deadline) {
+        Strategy x = strategy(request.getX(), request.getSize(), request.getWinLength());
+        Strategy o = strategy(request.getO(), request.getSize(), request.getWinLength());
+        long seed = request.getSeed() != null ? request.getSeed() : ThreadLocalRandom.current().nextLong();
+
+        long start = System.nanoTime();
+        Tally tally = pool.invoke(new SimulationTask(request.getSize(), request.getWinLength(), x, o,
+                request.getGames(), new SplittableRandom(seed), deadline));
+        long elapsed = System.nanoTime() - start;
+        simulationTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        gameCounter.increment(request.getGames());
+        log.info("Simulated {} games {} vs {} on {}x{} in {} ms",
+                request.getGames(), request.getX(), request.getO(), request.getSize(), request.getSize(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return new SimulationResult(request.getX(), request.getO(), request.getSize(), request.getWinLength(), seed,
+                request.getGames(), tally.winsX, tally.winsO, tally.draws, tally.moves, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * The pairings of a tournament: every strategy against every strategy, each side. PERFECT only takes part on the 3x3 board.
+     * The games of all pairings together are capped like a single run.
+     */
+    public List<SimulationRequest> tournament(int size, int winLength, long games, Long seed) {
+        GameRules.validateVariant(size, winLength);
+        List<SimulationRequest> pairings = new ArrayList<>();
+        for (SimulationStrategy x : SimulationStrategy.values()) {
+            for (SimulationStrategy o : SimulationStrategy.values()) {
+                if (supports(x, size, winLength) && supports(o, size, winLength)) {
+                    SimulationRequest request = new SimulationRequest();
+                    request.setX(x);
+                    request.setO(o);
+                    request.setSize(size);
+                    request.setWinLength(winLength);
+                    request.setGames(games);
+                    request.setSeed(seed);
+                    pairings.add(request);
+                }
+            }
+        }
+        validateGames(games, size, pairings.size());
+        return pairings;
+    }
+
+    /**
+     * Simulates the requests of a tournament one after another and writes a CSV row for each as soon as it finishes.
+     * They share one timeout, so the export stops at the first request still running when it is up.
+     */
+    @SneakyThrows
+    public void exportCsv(List<SimulationRequest> requests, OutputStream out) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        for (SimulationRequest request : requests) {
+            out.write(csvRow(simulate(request, deadline)).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Checks the games of each of runs runs against the cap of a single run.
+     */
+    private void validateGames(long games, int size, int runs) {
+        long maxGames = maxCells / ((long) size * size) / Math.max(runs, 1);
+        if (games < 1 || games > maxGames) {
+            throw new GameException("Invalid number of games. Games must be between 1 and " + maxGames
+                    + (runs > 1 ? " per pairing" : "") + " on this board");
+        }
+    }
+
+    private static boolean supports(SimulationStrategy strategy, int size, int winLength) {
+        return strategy != SimulationStrategy.PERFECT || PerfectPlayAi.supports(size, winLength);
+    }
+
+    private Strategy strategy(SimulationStrategy strategy, int size, int winLength) {
+        if (strategy == null) {
+            throw new GameException("Strategies for X and O are required");
+        }
+        if (!supports(strategy, size, winLength)) {
+            throw new GameException("Perfect play is only available on the 3x3 board");
+        }
+        return switch (strategy) {
+            case RANDOM -> Playout::randomMove;
+            case HEURISTIC -> Playout::heuristicMove;
+            case PERFECT -> (playout, random) -> perfectPlayAi.bestMove(playout.cells());
+        };
+    }
+
+    private static String csvRow(SimulationResult result) {
+        return String.join(",", result.getX().name(), result.getO().name(),
+                String.valueOf(result.getSize()), String.valueOf(result.getWinLength()), String.valueOf(result.getSeed()),
+                String.valueOf(result.getGames()), String.valueOf(result.getWinsX()), String.valueOf(result.getWinsO()),
+                String.valueOf(result.getDraws()), String.valueOf(result.getMoves()), String.valueOf(result.getElapsedMillis())) + "\n";
+    }
+
+    @FunctionalInterface
+    private interface Strategy {
+        int move(Playout playout, SplittableRandom random);
+    }
+
+    private static final class Tally {
+        private long winsX;
+        private long winsO;
+        private long draws;
+        private long moves;
+
+        private Tally add(Tally other) {
+            winsX += other.winsX;
+            winsO += other.winsO;
+            draws += other.draws;
+            moves += other.moves;
+            return this;
+        }
+    }
+
+    private final class SimulationTask extends RecursiveTask<Tally> {
+        private final int size;
+        private final int winLength;
+        private final Strategy x;
+        private final Strategy o;
+        private final long games;
+        private final SplittableRandom random;
+        private final long deadline;
+
+        private SimulationTask(int size, int winLength, Strategy x, Strategy o, long games, SplittableRandom random, long deadline) {
+            this.size = size;
+            this.winLength = winLength;
+            this.x = x;
+            this.o = o;
+            this.games = games;
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (games > batchSize) {
+                long half = games / 2;
+                SimulationTask first = new SimulationTask(size, winLength, x, o, half, random.split(), deadline);
+                SimulationTask second = new SimulationTask(size, winLength, x, o, games - half, random.split(), deadline);
+                first.fork();
+                Tally tally = second.compute();
+                return tally.add(first.join());
+            }
+            Tally tally = new Tally();
+            Playout playout = new Playout(size, winLength);
+            for (long game = 0; game < games; game++) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new GameException("Simulation took longer than " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                }
+                playout.reset();
+                GameStatus status;
+                do {
+                    Strategy strategy = playout.moveCount() % 2 == 0 ? x : o;
+                    status = playout.play(strategy.move(playout, random));
+                } while (status == GameStatus.IN_PROGRESS);
+                switch (status) {
+                    case X_WON -> tally.winsX++;
+                    case O_WON -> tally.winsO++;
+                    default -> tally.draws++;
+                }
+                tally.moves += playout.moveCount();
+            }
+            return tally;
+        }
+    }
+}
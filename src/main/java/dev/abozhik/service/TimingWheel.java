@@ -0,0 +1,95 @@
+package dev.abozhik.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck): four levels of 64 slots, each level 64 times coarser
+ * than the one below. Adding an item is O(1); advancing one tick fires the due slot of the first level
+ * and, every 64 ticks, spreads one slot of a higher level over the levels below. Items beyond the
+ * horizon (2^24 ticks) fire at the horizon, so the owner must check its own deadline when an item fires.
+ * Not thread-safe: a single owner adds and advances.
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long HORIZON = 1L << (BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Node<T>[][] slots;
+    private long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new Node[LEVELS][SLOTS];
+        this.tick = startMillis / tickMillis;
+    }
+
+    void add(T item, long deadlineMillis) {
+        // the current tick has already fired, so anything due fires on the next one
+        insert(new Node<>(item, Math.max(Math.ceilDiv(deadlineMillis, tickMillis), tick + 1)));
+        size++;
+    }
+
+    /**
+     * Fires every item whose deadline is at or before now, tick by tick.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        while (tick < target) {
+            tick++;
+            for (int level = 1; level < LEVELS && (tick & ((1L << (BITS * level)) - 1)) == 0; level++) {
+                int slot = (int) ((tick >> (BITS * level)) & MASK);
+                Node<T> node = slots[level][slot];
+                slots[level][slot] = null;
+                while (node != null) {
+                    Node<T> next = node.next;
+                    insert(node);
+                    node = next;
+                }
+            }
+            int slot = (int) (tick & MASK);
+            Node<T> node = slots[0][slot];
+            slots[0][slot] = null;
+            while (node != null) {
+                size--;
+                expired.accept(node.item);
+                node = node.next;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(Node<T> node) {
+        long delta = node.deadlineTick - tick;
+        if (delta >= HORIZON) {
+            node.deadlineTick = tick + HORIZON - 1;
+            delta = HORIZON - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((node.deadlineTick >> (BITS * level)) & MASK);
+        node.next = slots[level][slot];
+        slots[level][slot] = node;
+    }
+
+    private static final class Node<T> {
+        private final T item;
+        private long deadlineTick;
+        private Node<T> next;
+
+        private Node(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.repository.GameRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Advances the turn timers every tick and forfeits the expired games in batches, one transaction per batch.
+ * A batch that fails, e.g. on a concurrent move, is redone game by game, so only the moved game is skipped.
+ */
+@Slf4j
+@Component
+public class TurnTimeoutReaper {
+
+    private final TurnTimer turnTimer;
+    private final GameService gameService;
+    private final GameRepository gameRepository;
+    private final int batchSize;
+
+    public TurnTimeoutReaper(TurnTimer turnTimer,
+                             GameService gameService,
+                             GameRepository gameRepository,
+                             @Value("${game.turn.reaper-batch-size:500}") int batchSize) {
+        this.turnTimer = turnTimer;
+        this.gameService = gameService;
+        this.gameRepository = gameRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Games in progress when the node starts get a full turn from now on.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void startTimers() {
+        try (Stream<GameRepository.GameTurn> turns = gameRepository.streamTurns(GameStatus.IN_PROGRESS)) {
+            turns.forEach(turn -> turnTimer.update(turn.getId(), turn.getMoveCount(), true));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${game.turn.tick:1000}")
+    public void reap() {
+        List<TurnTimer.Expired> expired = turnTimer.expire(System.currentTimeMillis());
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            forfeit(expired.subList(from, Math.min(from + batchSize, expired.size())));
+        }
+    }
+
+    private void forfeit(List<TurnTimer.Expired> batch) {
+        Map<Long, Integer> moveCounts = new LinkedHashMap<>();
+        for (TurnTimer.Expired turn : batch) {
+            moveCounts.put(turn.gameId(), turn.moveCount());
+        }
+        try {
+            Set<Long> forfeited = new HashSet<>(gameService.forfeitIdleGames(moveCounts));
+            batch.forEach(turn -> turnTimer.release(turn, forfeited.contains(turn.gameId())));
+            return;
+        } catch (RuntimeException e) {
+            log.debug("Turn timeout batch of {} games failed, retrying one by one", batch.size(), e);
+        }
+        for (TurnTimer.Expired turn : batch) {
+            try {
+                turnTimer.release(turn, !gameService.forfeitIdleGames(Map.of(turn.gameId(), turn.moveCount())).isEmpty());
+            } catch (ObjectOptimisticLockingFailureException e) {
+                turnTimer.release(turn, false);
+            } catch (RuntimeException e) {
+                log.error("Turn timeout of game {} failed, retrying on the next tick", turn.gameId(), e);
+                turnTimer.retry(turn);
+            }
+        }
+    }
+}
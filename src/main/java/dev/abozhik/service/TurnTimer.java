@@ -0,0 +1,157 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Turn deadlines of the games in progress, kept in memory. Every game has one entry in a timing wheel;
+ * a move only replaces the entry's deadline (a map lookup and a volatile write), and when the entry fires
+ * with a deadline that has moved on it is put back for the new one. The wheel is only touched by the reaper.
+ */
+@Component
+public class TurnTimer {
+
+    private final long timeoutMillis;
+    private final ConcurrentMap<Long, Turn> turns = new ConcurrentHashMap<>();
+    private final Queue<Turn> arrivals = new ConcurrentLinkedQueue<>();
+    private final TimingWheel<Turn> wheel;
+
+    public TurnTimer(MeterRegistry meterRegistry,
+                     @Value("${game.turn.timeout:300000}") long timeoutMillis,
+                     @Value("${game.turn.tick:1000}") long tickMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        Gauge.builder("game.turn.timers", turns, ConcurrentMap::size)
+                .description("Games with a running turn timer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Restarts the turn timer of the game after the current transaction commits, or stops it when the game is over.
+     */
+    public void update(Game game) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        Long gameId = game.getId();
+        int moveCount = game.getMoveCount();
+        boolean inProgress = game.getStatus() == GameStatus.IN_PROGRESS;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(gameId, moveCount, inProgress);
+                }
+            });
+        } else {
+            update(gameId, moveCount, inProgress);
+        }
+    }
+
+    void update(Long gameId, int moveCount, boolean inProgress) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        if (!inProgress) {
+            turns.remove(gameId);
+            return;
+        }
+        Deadline deadline = new Deadline(System.currentTimeMillis() + timeoutMillis, moveCount);
+        turns.compute(gameId, (id, turn) -> {
+            if (turn == null) {
+                turn = new Turn(id, deadline);
+                arrivals.add(turn);
+            } else if (deadline.moveCount() >= turn.deadline.moveCount()) {
+                turn.deadline = deadline;
+            }
+            return turn;
+        });
+    }
+
+    /**
+     * Turns whose deadline has passed. Each must be handed back to {@link #release} once handled.
+     */
+    synchronized List<Expired> expire(long nowMillis) {
+        Turn turn;
+        while ((turn = arrivals.poll()) != null) {
+            wheel.add(turn, turn.deadline.at());
+        }
+        List<Expired> expired = new ArrayList<>();
+        wheel.advance(nowMillis, fired -> {
+            if (turns.get(fired.gameId) != fired) {
+                return;
+            }
+            Deadline deadline = fired.deadline;
+            if (deadline.at() > nowMillis) {
+                wheel.add(fired, deadline.at());
+            } else {
+                expired.add(new Expired(fired, deadline));
+            }
+        });
+        return expired;
+    }
+
+    /**
+     * Drops the timer of a forfeited game, or of a game nobody moved on through this node since it expired
+     * (finished or played elsewhere). Otherwise a move came in meanwhile and the timer runs on.
+     */
+    void release(Expired expired, boolean forfeited) {
+        Turn turn = expired.turn();
+        boolean[] rearm = new boolean[1];
+        turns.computeIfPresent(turn.gameId, (id, current) -> {
+            if (current != turn) {
+                return current;
+            }
+            if (forfeited || current.deadline == expired.deadline()) {
+                return null;
+            }
+            rearm[0] = true;
+            return current;
+        });
+        if (rearm[0]) {
+            arrivals.add(turn);
+        }
+    }
+
+    /**
+     * Puts the turn back as it was, to expire again on the next tick.
+     */
+    void retry(Expired expired) {
+        arrivals.add(expired.turn());
+    }
+
+    record Expired(Turn turn, Deadline deadline) {
+        Long gameId() {
+            return turn.gameId;
+        }
+
+        int moveCount() {
+            return deadline.moveCount();
+        }
+    }
+
+    record Deadline(long at, int moveCount) {}
+
+    static final class Turn {
+        private final Long gameId;
+        private volatile Deadline deadline;
+
+        private Turn(Long gameId, Deadline deadline) {
+            this.gameId = gameId;
+            this.deadline = deadline;
+        }
+    }
+}
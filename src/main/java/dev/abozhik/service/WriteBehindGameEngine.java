@@ -0,0 +1,484 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.exception.TooManyRequestsException;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.model.entity.ProcessedRequest;
+import dev.abozhik.repository.GameRepository;
+import dev.abozhik.repository.ProcessedRequestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind move engine. Active games are held in memory, partitioned into shards by game id.
+ * Every shard owns a single-threaded lane, so all state of a shard is only touched by its lane
+ * and moves never race each other. Dirty games are flushed to the database in batches.
+ * A batch that fails is written again game by game, so one bad game does not hold back the rest of its shard.
+ * A game whose flush failed keeps its unsaved moves and is flushed again after a backoff that doubles up to max-backoff ms;
+ * until it is saved, new moves on it are rejected with a 429 rather than piling up more acknowledged moves.
+ * Only a game changed elsewhere in the meantime loses its unsaved moves: it is read again from the database,
+ * subscribers get a snapshot of it to replace the moves they were sent, and it is counted in game.engine.discarded.
+ * Clean games idle for idle-timeout ms leave memory and are read again on their next move.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "game.engine.write-behind.enabled", havingValue = "true")
+public class WriteBehindGameEngine implements DisposableBean {
+
+    private final GameRepository gameRepository;
+    private final ProcessedRequestRepository processedRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final GameAi gameAi;
+    private final MoveHistory moveHistory;
+    private final ProcessedRequestCache processedRequestCache;
+    private final GameBroadcaster gameBroadcaster;
+    private final Counter discarded;
+    private final long idleTimeoutNanos;
+    private final long flushIntervalNanos;
+    private final long maxBackoffNanos;
+    private final Shard[] shards;
+
+    public WriteBehindGameEngine(GameRepository gameRepository,
+                                 ProcessedRequestRepository processedRequestRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 GameAi gameAi,
+                                 MoveHistory moveHistory,
+                                 ProcessedRequestCache processedRequestCache,
+                                 GameBroadcaster gameBroadcaster,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${game.engine.write-behind.shards:0}") int shardCount,
+                                 @Value("${game.engine.write-behind.idle-timeout:60000}") long idleTimeout,
+                                 @Value("${game.engine.write-behind.flush-interval:50}") long flushInterval,
+                                 @Value("${game.engine.write-behind.max-backoff:10000}") long maxBackoff) {
+        this.gameRepository = gameRepository;
+        this.processedRequestRepository = processedRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gameAi = gameAi;
+        this.moveHistory = moveHistory;
+        this.processedRequestCache = processedRequestCache;
+        this.gameBroadcaster = gameBroadcaster;
+        this.discarded = Counter.builder("game.engine.discarded")
+                .description("Games whose unsaved moves were discarded because they were changed elsewhere")
+                .register(meterRegistry);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushInterval, 1));
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoff);
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Applies the move on the game's shard. The recorded moves are also added to moves, for broadcasting.
+     * An AI reply is searched for on the calling thread, on a copy, and played in a second step on the lane
+     * unless the game moved on in the meantime, so a search never holds up the other games of the shard.
+     *
+     * @throws TooManyRequestsException while the game's last flush has failed
+     */
+    public Game makeMove(Long gameId, int position, GamePlayer player, String requestId, MoveHistory.Entries moves) {
+        Shard shard = shardFor(gameId);
+        Game afterMove = shard.call(() -> {
+            if (requestId != null) {
+                Game processed = shard.findProcessedRequest(requestId);
+                if (processed != null) {
+                    return processed;
+                }
+            }
+
+            shard.checkSaved(gameId);
+            Game game = shard.load(gameId);
+            GameRules.validateMove(game, position, player != null ? player : game.getCurrentPlayer());
+            GameRules.applyMove(game, position);
+            return shard.played(game, position, requestId, moves);
+        });
+
+        int reply = gameAi.choose(afterMove);
+        if (reply < 0) {
+            return afterMove;
+        }
+        return shard.call(() -> {
+            Game game = shard.load(gameId);
+            if (game.getMoveCount() != afterMove.getMoveCount()) {
+                return afterMove;
+            }
+            GameRules.applyMove(game, reply);
+            return shard.played(game, reply, requestId, moves);
+        });
+    }
+
+    /**
+     * Forfeits the game if it has not been moved on since moveCount. Returns the forfeited game, or null.
+     */
+    public Game forfeitIfIdle(Long gameId, int moveCount) {
+        Shard shard = shardFor(gameId);
+        return shard.call(() -> {
+            Game game = shard.load(gameId);
+            if (game.getStatus() != GameStatus.IN_PROGRESS || game.getMoveCount() != moveCount) {
+                return null;
+            }
+            GameRules.forfeit(game);
+            shard.dirty.add(gameId);
+            return Game.copyOf(game);
+        });
+    }
+
+    public Optional<Game> findGame(Long gameId) {
+        Shard shard = shardFor(gameId);
+        return shard.call(() -> Optional.ofNullable(shard.games.get(gameId)).map(Game::copyOf));
+    }
+
+    @Scheduled(fixedDelayString = "${game.engine.write-behind.flush-interval:50}")
+    public void flush() {
+        for (Shard shard : shards) {
+            flush(shard);
+        }
+    }
+
+    private void flush(Shard shard) {
+        Batch batch = shard.call(shard::drain);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Game> saved;
+        try {
+            saved = write(batch);
+        } catch (RuntimeException e) {
+            log.warn("Write-behind flush failed for shard={}, games={}, writing them one by one",
+                    shard.index, batch.games().size(), e);
+            batch.byGame().forEach((gameId, single) -> flush(shard, gameId, single));
+            return;
+        }
+
+        shard.call(() -> shard.confirm(saved));
+        log.debug("Flushed shard={}, games={}, requests={}", shard.index, saved.size(), batch.requests().size());
+    }
+
+    private void flush(Shard shard, Long gameId, Batch batch) {
+        try {
+            List<Game> saved = write(batch);
+            shard.call(() -> shard.confirm(saved));
+        } catch (RuntimeException e) {
+            shard.call(() -> shard.fail(gameId, batch, e));
+        }
+    }
+
+    private List<Game> write(Batch batch) {
+        return transactionTemplate.execute(status -> {
+            List<Game> result = gameRepository.saveAll(batch.games());
+            processedRequestRepository.saveAll(toProcessedRequests(batch.requests()));
+            moveHistory.store(batch.history());
+            return result;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+        for (Shard shard : shards) {
+            shard.lane.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.lane.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Shard shardFor(Long gameId) {
+        return shards[Math.floorMod(Long.hashCode(gameId), shards.length)];
+    }
+
+    private static boolean isVersionConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<ProcessedRequest> toProcessedRequests(Map<String, Game> requests) {
+        List<ProcessedRequest> result = new ArrayList<>(requests.size());
+        for (Map.Entry<String, Game> entry : requests.entrySet()) {
+            ProcessedRequest processedRequest = new ProcessedRequest();
+            processedRequest.setRequestId(entry.getKey());
+            processedRequest.setResponse(entry.getValue());
+            result.add(processedRequest);
+        }
+        return result;
+    }
+
+    private record Backoff(int attempts, long retryAt) {}
+
+    private record Batch(List<Game> games, Map<String, Game> requests, MoveHistory.Entries history) {
+        boolean isEmpty() {
+            return games.isEmpty() && requests.isEmpty() && history.isEmpty();
+        }
+
+        /**
+         * Splits the batch into one batch per game. Takes the history out of this batch.
+         */
+        Map<Long, Batch> byGame() {
+            Map<Long, Batch> result = new LinkedHashMap<>();
+            for (Game game : games) {
+                result.put(game.getId(), new Batch(List.of(game), new HashMap<>(), history.remove(game.getId())));
+            }
+            requests.forEach((requestId, response) -> result.computeIfAbsent(response.getId(),
+                            gameId -> new Batch(new ArrayList<>(), new HashMap<>(), history.remove(gameId)))
+                    .requests().put(requestId, response));
+            return result;
+        }
+    }
+
+    private final class Shard {
+        private final int index;
+        private final ExecutorService lane;
+        private final Map<Long, Game> games = new HashMap<>();
+        // game -> time of its last move, least recently moved first
+        private final LinkedHashMap<Long, Long> lastUsed = new LinkedHashMap<>(16, 0.75f, true);
+        private final Set<Long> dirty = new LinkedHashSet<>();
+        // game -> backoff after its last flush failed
+        private final Map<Long, Backoff> failing = new HashMap<>();
+        private Map<String, Game> pendingRequests = new HashMap<>();
+        private MoveHistory.Entries history = new MoveHistory.Entries();
+        // Requests of the previous flush stay visible for one more cycle, so a retry that checked
+        // the database just before the flush committed is still recognised as a duplicate.
+        private Map<String, Game> flushedRequests = new HashMap<>();
+
+        private Shard(int index) {
+            this.index = index;
+            this.lane = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-engine-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> T call(Supplier<T> task) {
+            try {
+                return CompletableFuture.supplyAsync(task, lane).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Records the move just applied to the game and returns the response to it.
+         */
+        private Game played(Game game, int position, String requestId, MoveHistory.Entries moves) {
+            MoveHistory.Entries recorded = new MoveHistory.Entries();
+            moveHistory.record(game, position, recorded);
+            history.addAll(recorded);
+            moves.addAll(recorded);
+            dirty.add(game.getId());
+
+            Game response = Game.copyOf(game);
+            if (requestId != null) {
+                pendingRequests.put(requestId, response);
+            }
+            return response;
+        }
+
+        /**
+         * Rejects new moves on a game that could not be saved, until it is.
+         */
+        private void checkSaved(Long gameId) {
+            Backoff backoff = failing.get(gameId);
+            if (backoff != null) {
+                long waitNanos = Math.max(backoff.retryAt() - System.nanoTime(), 0);
+                throw new TooManyRequestsException("Game could not be saved yet, try again shortly",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+        }
+
+        private Game findProcessedRequest(String requestId) {
+            Game game = pendingRequests.get(requestId);
+            return game != null ? game : flushedRequests.get(requestId);
+        }
+
+        private Game load(Long gameId) {
+            Game game = games.get(gameId);
+            if (game == null) {
+                game = gameRepository.findById(gameId)
+                        .orElseThrow(() -> new GameException("Game not found with id: " + gameId));
+                games.put(gameId, game);
+            }
+            lastUsed.put(gameId, System.nanoTime());
+            return game;
+        }
+
+        /**
+         * Lets go of the clean games that have not been moved for idle-timeout. Runs while no flush is in flight,
+         * so a game is never read again before its last flush committed.
+         */
+        private void evictIdle() {
+            long now = System.nanoTime();
+            Iterator<Map.Entry<Long, Long>> iterator = lastUsed.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Long> entry = iterator.next();
+                if (now - entry.getValue() < idleTimeoutNanos) {
+                    break;
+                }
+                if (!dirty.contains(entry.getKey())) {
+                    games.remove(entry.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+
+        /**
+         * Takes everything unsaved for the next flush, except for the games still backing off after a failed flush.
+         */
+        private Batch drain() {
+            evictIdle();
+            long now = System.nanoTime();
+            Set<Long> held = new HashSet<>();
+            List<Game> snapshot = new ArrayList<>(dirty.size());
+            for (Long gameId : dirty) {
+                Backoff backoff = failing.get(gameId);
+                if (backoff != null && backoff.retryAt() - now > 0) {
+                    held.add(gameId);
+                } else {
+                    snapshot.add(Game.copyOf(games.get(gameId)));
+                }
+            }
+            dirty.retainAll(held);
+            Map<String, Game> requests = pendingRequests;
+            pendingRequests = new HashMap<>();
+            MoveHistory.Entries entries = history;
+            history = new MoveHistory.Entries();
+            if (!held.isEmpty()) {
+                for (Iterator<Map.Entry<String, Game>> iterator = requests.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<String, Game> request = iterator.next();
+                    if (held.contains(request.getValue().getId())) {
+                        pendingRequests.put(request.getKey(), request.getValue());
+                        iterator.remove();
+                    }
+                }
+                held.forEach(gameId -> history.addAll(entries.remove(gameId)));
+            }
+            flushedRequests = requests;
+            return new Batch(snapshot, requests, entries);
+        }
+
+        private Void restore(Batch batch) {
+            for (Game game : batch.games()) {
+                dirty.add(game.getId());
+            }
+            batch.requests().forEach(pendingRequests::putIfAbsent);
+            batch.history().addAll(history);
+            history = batch.history();
+            return null;
+        }
+
+        private Void confirm(List<Game> saved) {
+            for (Game game : saved) {
+                Game resident = games.get(game.getId());
+                if (resident == null) {
+                    continue;
+                }
+                resident.setVersion(game.getVersion());
+                failing.remove(game.getId());
+                if (resident.getStatus() != GameStatus.IN_PROGRESS && !dirty.contains(game.getId())) {
+                    games.remove(game.getId());
+                    lastUsed.remove(game.getId());
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Handles a game whose flush failed: keeps it for a later flush, backing off, or when it was changed elsewhere
+         * discards its unsaved moves and sends subscribers the game as saved.
+         */
+        private Void fail(Long gameId, Batch batch, RuntimeException e) {
+            if (isVersionConflict(e)) {
+                log.error("Game {} was changed elsewhere, discarding its unsaved moves and reading it again", gameId, e);
+                discard(gameId);
+                resync(gameId);
+                return null;
+            }
+            int attempts = failing.containsKey(gameId) ? failing.get(gameId).attempts() + 1 : 1;
+            long delay = Math.min(flushIntervalNanos << Math.min(attempts, 30), maxBackoffNanos);
+            failing.put(gameId, new Backoff(attempts, System.nanoTime() + delay));
+            log.warn("Flush of game {} failed {} times in a row, trying again in {} ms",
+                    gameId, attempts, TimeUnit.NANOSECONDS.toMillis(delay), e);
+            restore(batch);
+            return null;
+        }
+
+        /**
+         * Forgets the game and everything not yet flushed for it, including moves made since the failed flush
+         * was drained, so its next move reads it from the database and replayed requests are applied again.
+         */
+        private void discard(Long gameId) {
+            games.remove(gameId);
+            lastUsed.remove(gameId);
+            dirty.remove(gameId);
+            failing.remove(gameId);
+            history.remove(gameId);
+            forgetRequests(pendingRequests, gameId);
+            forgetRequests(flushedRequests, gameId);
+            discarded.increment();
+        }
+
+        /**
+         * Broadcasts a snapshot of the game as saved, so subscribers drop the discarded moves they were sent.
+         */
+        private void resync(Long gameId) {
+            try {
+                Game game = load(gameId);
+                gameBroadcaster.publish(GameBroadcaster.snapshotOf(game), Game.copyOf(game));
+            } catch (RuntimeException e) {
+                log.warn("Failed to read game {} again after discarding its moves", gameId, e);
+            }
+        }
+
+        private void forgetRequests(Map<String, Game> requests, Long gameId) {
+            requests.entrySet().removeIf(request -> {
+                if (!request.getValue().getId().equals(gameId)) {
+                    return false;
+                }
+                processedRequestCache.invalidate(request.getKey());
+                return true;
+            });
+        }
+    }
+}
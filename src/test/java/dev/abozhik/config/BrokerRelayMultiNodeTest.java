@@ -0,0 +1,145 @@
+package dev.abozhik.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.TicTacToeApplication;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application nodes sharing one database and one embedded STOMP broker: a move made through
+ * one node must reach a subscriber connected to the other.
+ */
+class BrokerRelayMultiNodeTest {
+
+    private static final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private static final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private static EmbeddedActiveMQ broker;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        int brokerPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            brokerPort = socket.getLocalPort();
+        }
+        broker = new EmbeddedActiveMQ().setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + brokerPort + "?protocols=STOMP;multicastPrefix=/topic/"));
+        broker.start();
+        nodeA = startNode(brokerPort);
+        nodeB = startNode(brokerPort);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        broker.stop();
+    }
+
+    @Test
+    void moveOnOneNodeReachesSubscriberOnOtherNodeTest() throws Exception {
+        //given
+        long gameId = post(nodeB, "/api/game/new", null).path("id").asLong();
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        stompClient.setTaskScheduler(receiptScheduler);
+        StompSession session = stompClient.connectAsync(url(nodeA, "/ws"), new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+        BlockingQueue<JsonNode> received = new LinkedBlockingQueue<>();
+        session.setAutoReceipt(true);
+        StompSession.Subscription subscription = session.subscribe("/topic/game/" + gameId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                try {
+                    jsonMapper.readTree((byte[]) payload).forEach(received::add);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        CountDownLatch subscribed = new CountDownLatch(1);
+        subscription.addReceiptTask(subscribed::countDown);
+        assertTrue(subscribed.await(10, TimeUnit.SECONDS), "subscription not confirmed by the broker");
+        //when
+        post(nodeB, "/api/game/" + gameId + "/move", "{\"position\":4,\"player\":\"X\"}");
+        //then
+        JsonNode move = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(move, "no broadcast received on the other node");
+        assertEquals(gameId, move.path("id").asLong());
+        assertEquals(1, move.path("sequence").asInt());
+        assertEquals(4, move.path("position").asInt());
+        assertEquals("X", move.path("player").asText());
+        session.disconnect();
+        stompClient.stop();
+        receiptScheduler.shutdown();
+    }
+
+    private static ConfigurableApplicationContext startNode(int brokerPort) {
+        return new SpringApplicationBuilder(TicTacToeApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:broker-relay-test;DB_CLOSE_DELAY=-1",
+                "--game.broker.relay.enabled=true",
+                "--game.broker.relay.host=127.0.0.1",
+                "--game.broker.relay.port=" + brokerPort);
+    }
+
+    private static String url(ConfigurableApplicationContext node, String path) {
+        return "http://localhost:" + node.getEnvironment().getProperty("local.server.port") + path;
+    }
+
+    private static JsonNode post(ConfigurableApplicationContext node, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url(node, path)));
+        if (body != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode(), new String(response.body()));
+        return jsonMapper.readTree(response.body());
+    }
+}
@@ -1,28 +1,44 @@
 package dev.abozhik.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abozhik.model.BatchMoveRequest;
 import dev.abozhik.model.GamePlayer;
 import dev.abozhik.model.GameStatus;
 import dev.abozhik.model.MoveRequest;
 import dev.abozhik.model.constants.GameConstants;
 import dev.abozhik.model.entity.Game;
+import dev.abozhik.model.entity.MoveEvent;
 import dev.abozhik.repository.GameRepository;
+import dev.abozhik.service.GameService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -39,10 +55,19 @@ class GameControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Game savedGame;
 
+    private LocalDateTime startTime;
+
     @BeforeEach
     void setUp() {
+        startTime = LocalDateTime.now();
         Game game = new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X);
         savedGame = gameRepository.save(game);
     }
@@ -55,12 +80,92 @@ class GameControllerTest {
                 .andExpect(jsonPath("$.board", is(GameConstants.EMPTY_BOARD)));
     }
 
+    @Test
+    void createLargeGameTest() throws Exception {
+        mockMvc.perform(post("/api/game/new").param("size", "19").param("winLength", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.boardSize", is(19)))
+                .andExpect(jsonPath("$.winLength", is(5)))
+                .andExpect(jsonPath("$.board", is(" ".repeat(19 * 19))));
+    }
+
     @Test
     void listGamesTest() throws Exception {
         gameRepository.save(new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X));
-        mockMvc.perform(get("/api/game"))
+        mockMvc.perform(get("/api/game").param("createdFrom", startTime.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void listGamesPaginationTest() throws Exception {
+        Game newest = gameRepository.save(new Game(GameStatus.DRAW, GameConstants.EMPTY_BOARD, GamePlayer.X));
+        mockMvc.perform(get("/api/game").param("createdFrom", startTime.toString()).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(newest.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", is(newest.getId().intValue())));
+        mockMvc.perform(get("/api/game").param("createdFrom", startTime.toString()).param("size", "1")
+                        .param("cursor", newest.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id", is(savedGame.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        mockMvc.perform(get("/api/game").param("createdFrom", startTime.toString()).param("status", "DRAW"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].status", is("DRAW")));
+    }
+
+    @Test
+    void exportGamesTest() throws Exception {
+        gameRepository.save(new Game(GameStatus.IN_PROGRESS, "X        ", GamePlayer.O));
+        MvcResult result = mockMvc.perform(get("/api/game/export").param("createdFrom", startTime.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(savedGame.getId(), objectMapper.readValue(lines[0], Game.class).getId());
+        assertEquals("X        ", objectMapper.readValue(lines[1], Game.class).getBoard());
+    }
+
+    @Test
+    void historyAndReplayTest() throws Exception {
+        gameService.makeMove(savedGame.getId(), 4, GamePlayer.X, null);
+        gameService.makeMove(savedGame.getId(), 0, GamePlayer.O, null);
+        MvcResult result = mockMvc.perform(get("/api/game/{id}/history", savedGame.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(4, objectMapper.readValue(lines[0], MoveEvent.class).getPosition());
+        assertEquals(GamePlayer.O, objectMapper.readValue(lines[1], MoveEvent.class).getPlayer());
+
+        mockMvc.perform(get("/api/game/{id}/replay", savedGame.getId()).param("moveNumber", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.board", is("    X    ")))
+                .andExpect(jsonPath("$.currentPlayer", is("O")));
+    }
+
+    @Test
+    void replayWithoutRecordedHistoryTest() throws Exception {
+        //given a game played before moves were logged
+        Game legacy = gameRepository.save(new Game(GameStatus.IN_PROGRESS, "X   O    ", GamePlayer.X));
+
+        //when //then
+        mockMvc.perform(get("/api/game/{id}/replay", legacy.getId()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("History not available for this game")));
+        mockMvc.perform(get("/api/game/{id}/replay", legacy.getId()).param("moveNumber", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.board", is(GameConstants.EMPTY_BOARD)));
     }
 
     @Test
@@ -70,6 +175,48 @@ class GameControllerTest {
                 .andExpect(jsonPath("$.id", is(savedGame.getId().intValue())));
     }
 
+    @Test
+    void createGameRateLimitedPerClientTest() throws Exception {
+        // the burst of 20 plus whatever refilled meanwhile
+        int admitted = 0;
+        MvcResult result;
+        while ((result = mockMvc.perform(post("/api/game/new")).andReturn()).getResponse().getStatus() == 200) {
+            admitted++;
+        }
+
+        assertTrue(admitted >= 20);
+        assertEquals(429, result.getResponse().getStatus());
+        assertNotNull(result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+        mockMvc.perform(post("/api/game/new").with(request -> {
+                    request.setRemoteAddr("10.0.0.2");
+                    return request;
+                }))
+                .andExpect(status().isOk());
+        assertEquals(1.0, meterRegistry.get("game.admission.rejected")
+                .tags("limit", "create", "reason", "rate").counter().count());
+    }
+
+    @Test
+    void getGameNotModifiedTest() throws Exception {
+        String eTag = mockMvc.perform(get("/api/game/{id}", savedGame.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/game/{id}", savedGame.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "game-responses", "result", "hit").functionCounter().count());
+
+        gameService.makeMove(savedGame.getId(), 0, GamePlayer.X, UUID.randomUUID().toString());
+
+        mockMvc.perform(get("/api/game/{id}", savedGame.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.board", is("X        ")));
+    }
+
     @Test
     void makeMoveTest() throws Exception {
         MoveRequest move = new MoveRequest();
@@ -101,6 +248,41 @@ class GameControllerTest {
                 .andExpect(jsonPath("$.status").value(400));
     }
 
+    @Test
+    void makeMovesTest() throws Exception {
+        Game otherGame = gameRepository.save(new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X));
+        BatchMoveRequest first = batchMove(savedGame.getId(), 0, "batch-1");
+        List<BatchMoveRequest> moves = List.of(
+                first,
+                batchMove(otherGame.getId(), 4, "batch-2"),
+                batchMove(savedGame.getId(), 0, "batch-3"),
+                batchMove(savedGame.getId(), 1, "batch-4"),
+                first);
+
+        mockMvc.perform(post("/api/game/moves")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(moves)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[0].game.board", is("X        ")))
+                .andExpect(jsonPath("$[1].game.board", is("    X    ")))
+                .andExpect(jsonPath("$[2].error", is("Position already taken")))
+                .andExpect(jsonPath("$[3].game.board", is("XO       ")))
+                .andExpect(jsonPath("$[4].game.board", is("X        ")));
+
+        assertEquals("XO       ", gameRepository.findById(savedGame.getId()).orElseThrow().getBoard());
+        assertEquals("    X    ", gameRepository.findById(otherGame.getId()).orElseThrow().getBoard());
+    }
+
+    @Test
+    void makeMovesWhenEmptyTest() throws Exception {
+        mockMvc.perform(post("/api/game/moves")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Move batch cannot be empty"));
+    }
+
     @Test
     void getGameWhenNotFoundTest() throws Exception {
         mockMvc.perform(get("/api/game/999999"))
@@ -109,4 +291,12 @@ class GameControllerTest {
                 .andExpect(jsonPath("$.message").value("Game not found"))
                 .andExpect(jsonPath("$.status").value(400));
     }
+
+    private BatchMoveRequest batchMove(Long gameId, int position, String requestId) {
+        BatchMoveRequest move = new BatchMoveRequest();
+        move.setGameId(gameId);
+        move.setPosition(position);
+        move.setRequestId(requestId + "-" + UUID.randomUUID());
+        return move;
+    }
 }
@@ -0,0 +1,201 @@
+package dev.abozhik.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.service.GameService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "game.admission.client-header=" + GameMessageControllerTest.CLIENT_HEADER)
+class GameMessageControllerTest {
+
+    // tells the players apart, as they all connect from the same address
+    static final String CLIENT_HEADER = "X-Client";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private WebSocketStompClient stompClient;
+
+    @BeforeEach
+    void setUp() {
+        stompClient = new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stompClient.stop();
+    }
+
+    @Test
+    void moveOverStompIsBroadcastOnceTest() throws Exception {
+        //given
+        Long gameId = gameService.createGame().getId();
+        StompSession session = connect();
+        BlockingQueue<JsonNode> moves = subscribe(session, "/topic/game/" + gameId);
+        BlockingQueue<JsonNode> errors = subscribe(session, "/user/queue/errors");
+        //when the same request is sent twice
+        String move = "{\"position\":4,\"player\":\"X\",\"requestId\":\"stomp-move-1\"}";
+        session.send("/app/game/" + gameId + "/move", move.getBytes());
+        session.send("/app/game/" + gameId + "/move", move.getBytes());
+        //then
+        JsonNode delta = moves.poll(10, TimeUnit.SECONDS);
+        assertNotNull(delta, "no broadcast received");
+        assertEquals(1, delta.path("sequence").asInt());
+        assertEquals(4, delta.path("position").asInt());
+        Game game = gameService.getGame(gameId);
+        assertEquals(1, game.getMoveCount());
+        assertNull(moves.poll(500, TimeUnit.MILLISECONDS));
+        assertTrue(errors.isEmpty());
+        session.disconnect();
+    }
+
+    @Test
+    void invalidMoveErrorGoesOnlyToSenderTest() throws Exception {
+        //given
+        Long gameId = gameService.createGame().getId();
+        StompSession sender = connect();
+        StompSession other = connect();
+        BlockingQueue<JsonNode> senderErrors = subscribe(sender, "/user/queue/errors");
+        BlockingQueue<JsonNode> otherErrors = subscribe(other, "/user/queue/errors");
+        //when
+        sender.send("/app/game/" + gameId + "/move", "{\"position\":4,\"player\":\"O\",\"requestId\":\"stomp-move-2\"}".getBytes());
+        //then
+        JsonNode error = senderErrors.poll(10, TimeUnit.SECONDS);
+        assertNotNull(error, "no error received");
+        assertEquals("It's not your turn", error.path("message").asText());
+        assertEquals(400, error.path("status").asInt());
+        assertNull(otherErrors.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, gameService.getGame(gameId).getMoveCount());
+        sender.disconnect();
+        other.disconnect();
+    }
+
+    @Test
+    void matchmakingAnnouncesGameToBothPlayersTest() throws Exception {
+        //given
+        StompSession alice = connect("alice-client", null);
+        StompSession bob = connect("bob-client", null);
+        BlockingQueue<JsonNode> aliceMatches = subscribe(alice, "/user/queue/matches");
+        BlockingQueue<JsonNode> bobMatches = subscribe(bob, "/user/queue/matches");
+        //when
+        alice.send("/app/matchmaking", "{\"playerId\":\"alice\",\"size\":15,\"winLength\":5}".getBytes());
+        bob.send("/app/matchmaking", "{\"playerId\":\"bob\",\"size\":15,\"winLength\":5}".getBytes());
+        //then
+        JsonNode aliceMatch = aliceMatches.poll(10, TimeUnit.SECONDS);
+        JsonNode bobMatch = bobMatches.poll(10, TimeUnit.SECONDS);
+        assertNotNull(aliceMatch, "no match announced to alice");
+        assertNotNull(bobMatch, "no match announced to bob");
+        assertEquals("MATCHED", aliceMatch.path("status").asText());
+        assertEquals(aliceMatch.path("gameId").asLong(), bobMatch.path("gameId").asLong());
+        assertNotEquals(aliceMatch.path("player").asText(), bobMatch.path("player").asText());
+        assertEquals("bob", aliceMatch.path("opponent").asText());
+        assertEquals(15, gameService.getGame(aliceMatch.path("gameId").asLong()).getBoardSize());
+        alice.disconnect();
+        bob.disconnect();
+    }
+
+    @Test
+    void matchQueuedOverHttpIsAnnouncedOnlyToTicketHolderTest() throws Exception {
+        //given
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(CLIENT_HEADER, "alice-client");
+        JsonNode queued = jsonMapper.readTree(restTemplate.postForEntity("/api/matchmaking",
+                new HttpEntity<>(Map.of("playerId", "alice", "size", 9, "winLength", 4), httpHeaders), String.class).getBody());
+        assertEquals("WAITING", queued.path("status").asText());
+        StompSession alice = connect("alice-client", queued.path("ticket").asText());
+        StompSession impostor = connect("mallory-client", "alice");
+        BlockingQueue<JsonNode> aliceMatches = subscribe(alice, "/user/queue/matches");
+        BlockingQueue<JsonNode> impostorMatches = subscribe(impostor, "/user/queue/matches");
+        StompSession bob = connect("bob-client", null);
+        //when
+        bob.send("/app/matchmaking", "{\"playerId\":\"bob\",\"size\":9,\"winLength\":4}".getBytes());
+        //then
+        JsonNode aliceMatch = aliceMatches.poll(10, TimeUnit.SECONDS);
+        assertNotNull(aliceMatch, "no match announced to the ticket holder");
+        assertEquals("MATCHED", aliceMatch.path("status").asText());
+        assertEquals("bob", aliceMatch.path("opponent").asText());
+        assertNull(impostorMatches.poll(500, TimeUnit.MILLISECONDS));
+        alice.disconnect();
+        impostor.disconnect();
+        bob.disconnect();
+    }
+
+    private StompSession connect() throws Exception {
+        return connect(null, null);
+    }
+
+    private StompSession connect(String client, String ticket) throws Exception {
+        WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+        if (client != null) {
+            handshakeHeaders.add(CLIENT_HEADER, client);
+        }
+        StompHeaders connectHeaders = new StompHeaders();
+        if (ticket != null) {
+            connectHeaders.add("ticket", ticket);
+        }
+        return stompClient.connectAsync("http://localhost:" + port + "/ws", handshakeHeaders, connectHeaders,
+                        new StompSessionHandlerAdapter() {})
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    private BlockingQueue<JsonNode> subscribe(StompSession session, String destination) {
+        BlockingQueue<JsonNode> received = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                try {
+                    JsonNode json = jsonMapper.readTree((byte[]) payload);
+                    if (json.isArray()) {
+                        json.forEach(received::add);
+                    } else {
+                        received.add(json);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        return received;
+    }
+}
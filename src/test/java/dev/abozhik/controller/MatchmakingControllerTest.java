@@ -0,0 +1,128 @@
+package dev.abozhik.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.repository.GameRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MatchmakingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void pairsTwoPlayersIntoNewGameTest() throws Exception {
+        //given
+        String aliceTicket = ticketOf(enqueue("10.0.0.1", "{\"playerId\":\"alice\",\"size\":15,\"winLength\":5}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andExpect(jsonPath("$.gameId", nullValue()))
+                .andReturn());
+        // other variant, so not a match
+        String carolTicket = ticketOf(enqueue("10.0.0.3", "{\"playerId\":\"carol\"}")
+                .andExpect(jsonPath("$.status", is("WAITING")))
+                .andReturn());
+        //when
+        MvcResult result = enqueue("10.0.0.2", "{\"playerId\":\"bob\",\"size\":15,\"winLength\":5}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("MATCHED")))
+                .andExpect(jsonPath("$.player", is("O")))
+                .andExpect(jsonPath("$.opponent", is("alice")))
+                .andExpect(jsonPath("$.ticket", nullValue()))
+                .andReturn();
+        //then
+        long gameId = objectMapper.readTree(result.getResponse().getContentAsString()).path("gameId").asLong();
+        Game game = gameRepository.findById(gameId).orElseThrow();
+        assertEquals(15, game.getBoardSize());
+        assertEquals(5, game.getWinLength());
+        mockMvc.perform(delete("/api/matchmaking/" + aliceTicket)).andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/api/matchmaking/carol")).andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/api/matchmaking/" + carolTicket)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void matchMadeBeforeOwnerConnectsCanBeReadTest() throws Exception {
+        //given
+        String aliceTicket = ticketOf(enqueue("10.0.0.1", "{\"playerId\":\"alice\",\"size\":7,\"winLength\":4}").andReturn());
+        mockMvc.perform(get("/api/matchmaking/" + aliceTicket))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("WAITING")));
+        //when bob is matched with alice before she has a STOMP connection
+        MvcResult result = enqueue("10.0.0.2", "{\"playerId\":\"bob\",\"size\":7,\"winLength\":4}")
+                .andExpect(jsonPath("$.status", is("MATCHED")))
+                .andReturn();
+        //then
+        long gameId = objectMapper.readTree(result.getResponse().getContentAsString()).path("gameId").asLong();
+        mockMvc.perform(get("/api/matchmaking/" + aliceTicket))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("MATCHED")))
+                .andExpect(jsonPath("$.gameId", is((int) gameId)))
+                .andExpect(jsonPath("$.player", is("X")))
+                .andExpect(jsonPath("$.opponent", is("bob")));
+        mockMvc.perform(get("/api/matchmaking/alice")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void neverPairsPlayerOrClientWithItselfTest() throws Exception {
+        //given
+        enqueue("10.0.0.1", "{\"playerId\":\"alice\",\"size\":5,\"winLength\":4}")
+                .andExpect(jsonPath("$.status", is("WAITING")));
+        //when
+        enqueue("10.0.0.2", "{\"playerId\":\"alice\",\"size\":5,\"winLength\":4}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Player is already waiting for an opponent")));
+        enqueue("10.0.0.1", "{\"playerId\":\"mallory\",\"size\":5,\"winLength\":4}")
+                .andExpect(status().isBadRequest());
+        //then a different player on a different client is matched
+        enqueue("10.0.0.2", "{\"playerId\":\"bob\",\"size\":5,\"winLength\":4}")
+                .andExpect(jsonPath("$.status", is("MATCHED")))
+                .andExpect(jsonPath("$.opponent", is("alice")));
+    }
+
+    @Test
+    void rejectsInvalidVariantTest() throws Exception {
+        enqueue("10.0.0.1", "{\"playerId\":\"alice\",\"size\":3,\"winLength\":4}")
+                .andExpect(status().isBadRequest());
+        enqueue("10.0.0.1", "{\"size\":3,\"winLength\":3}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Player ID is required for matchmaking")));
+    }
+
+    private String ticketOf(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString()).path("ticket").asText();
+    }
+
+    private ResultActions enqueue(String client, String body) throws Exception {
+        return mockMvc.perform(post("/api/matchmaking").contentType(MediaType.APPLICATION_JSON).content(body)
+                .with(request -> {
+                    request.setRemoteAddr(client);
+                    return request;
+                }));
+    }
+}
@@ -0,0 +1,84 @@
+package dev.abozhik.migration;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.converter.GameSnapshotConverter;
+import dev.abozhik.model.entity.Game;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryEncodingMigrationTest {
+
+    private static final String CHANGELOG = "db/changelog/db.changelog-master.xml";
+    private static final int CHANGE_SETS_BEFORE_ENCODING = 8;
+
+    @Test
+    void convertsExistingRowsTest() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:binary-encoding-migration", "sa", "")) {
+            Liquibase liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+            liquibase.update(CHANGE_SETS_BEFORE_ENCODING, new Contexts().toString());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("insert into game (id, current_player, board, board_size, win_length, move_count, status, creation_date_time, version) "
+                        + "values (1, 'O', 'X   O   X', 3, 3, 3, 'IN_PROGRESS', CURRENT_TIMESTAMP, 2)");
+                // stored before boards had a size
+                statement.execute("insert into processed_request (request_id, response) values ('classic', "
+                        + "'{\"id\":1,\"currentPlayer\":\"O\",\"status\":\"IN_PROGRESS\",\"board\":\"X   O   X\",\"creationDateTime\":\"2025-01-02T03:04:05\",\"version\":1}')");
+                statement.execute("insert into processed_request (request_id, response) values ('broken', '{}')");
+                connection.commit();
+            }
+
+            liquibase.update(new Contexts());
+
+            try (Statement statement = connection.createStatement()) {
+                ResultSet game = statement.executeQuery("select board from game where id = 1");
+                assertTrue(game.next());
+                assertEquals("X   O   X", Board.toString(Board.unpack(game.getBytes(1))));
+
+                ResultSet responses = statement.executeQuery("select request_id, response from processed_request");
+                assertTrue(responses.next());
+                assertEquals("classic", responses.getString(1));
+                Game response = GameSnapshotConverter.decode(responses.getBytes(2));
+                assertEquals(1L, response.getId());
+                assertEquals(3, response.getBoardSize());
+                assertEquals(3, response.getWinLength());
+                assertEquals(3, response.getMoveCount());
+                assertEquals(GamePlayer.O, response.getCurrentPlayer());
+                assertEquals(GameStatus.IN_PROGRESS, response.getStatus());
+                assertFalse(responses.next());
+            }
+        }
+    }
+
+    @Test
+    void unconvertibleGameFailsMigrationTest() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:binary-encoding-migration-failure", "sa", "")) {
+            Liquibase liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+            liquibase.update(CHANGE_SETS_BEFORE_ENCODING, new Contexts().toString());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("insert into game (id, current_player, board, board_size, win_length, move_count, status, creation_date_time, version) "
+                        + "values (1, 'X', 'broken', 3, 3, 0, 'IN_PROGRESS', CURRENT_TIMESTAMP, 0)");
+                connection.commit();
+            }
+
+            assertThrows(LiquibaseException.class, () -> liquibase.update(new Contexts()));
+
+            try (Statement statement = connection.createStatement()) {
+                ResultSet game = statement.executeQuery("select board from game where id = 1");
+                assertTrue(game.next());
+                assertEquals("broken", game.getString(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dev.abozhik.model;
+
+import dev.abozhik.model.constants.GameConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {GameConstants.EMPTY_BOARD, "X        ", "XOXOXOXOX", "  O X O  ", "X  O            "})
+    void stringRoundTripTest(String board) {
+        assertEquals(board, Board.toString(Board.fromString(board)));
+    }
+
+    @Test
+    void placeAndOccupiedTest() {
+        //given
+        byte[] cells = Board.empty(3);
+        //when
+        Board.place(cells, 0, GamePlayer.X);
+        Board.place(cells, 8, GamePlayer.O);
+        //then
+        assertTrue(Board.isOccupied(cells, 0));
+        assertTrue(Board.isOccupied(cells, 8));
+        assertFalse(Board.isOccupied(cells, 4));
+        assertEquals(2, Board.countStones(cells));
+        assertEquals("X       O", Board.toString(cells));
+    }
+
+    @Test
+    void classicWinTest() {
+        assertTrue(Board.isWinningMove(Board.fromString("XXXOO    "), 3, 3, 1));
+        assertFalse(Board.isWinningMove(Board.fromString("XXXOO    "), 3, 3, 4));
+        assertTrue(Board.isWinningMove(Board.fromString("O X O X O"), 3, 3, 8));
+        assertTrue(Board.isWinningMove(Board.fromString("  X X X  "), 3, 3, 2));
+        assertFalse(Board.isWinningMove(Board.fromString("XOXXOOOXX"), 3, 3, 8));
+    }
+
+    @Test
+    void largeBoardWinTest() {
+        //given
+        int size = 15;
+        byte[] cells = Board.empty(size);
+        int[] diagonal = {3 * size + 10, 4 * size + 9, 5 * size + 8, 6 * size + 7};
+        for (int position : diagonal) {
+            Board.place(cells, position, GamePlayer.O);
+        }
+        //when
+        boolean fourInARow = Board.isWinningMove(cells, size, 5, diagonal[3]);
+        Board.place(cells, 7 * size + 6, GamePlayer.O);
+        //then
+        assertFalse(fourInARow);
+        assertTrue(Board.isWinningMove(cells, size, 5, 7 * size + 6));
+        assertTrue(Board.isWinningMove(cells, size, 5, diagonal[1]));
+    }
+
+    @Test
+    void lineDoesNotWrapAroundEdgeTest() {
+        //given
+        int size = 5;
+        byte[] cells = Board.empty(size);
+        // last two cells of row 0 and first two of row 1 are adjacent in memory only
+        for (int position : new int[]{3, 4, 5, 6}) {
+            Board.place(cells, position, GamePlayer.X);
+        }
+        //then
+        assertFalse(Board.isWinningMove(cells, size, 4, 4));
+        assertFalse(Board.isWinningMove(cells, size, 4, 5));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 4, 15, 19, 32})
+    void packRoundTripTest(int size) {
+        //given
+        byte[] cells = Board.empty(size);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (byte) (i * 7 % 3);
+        }
+        //when
+        byte[] packed = Board.pack(cells);
+        //then
+        assertEquals(Board.packedLength(size), packed.length);
+        assertArrayEquals(cells, Board.unpack(packed));
+    }
+
+    @Test
+    void packedLengthTest() {
+        assertEquals(3, Board.pack(Board.fromString("XOXOXOXOX")).length);
+        assertEquals(GameConstants.MAX_PACKED_BOARD_LENGTH, Board.packedLength(GameConstants.MAX_BOARD_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> Board.unpack(new byte[]{3, 0}));
+    }
+
+    @Test
+    void invalidBoardTest() {
+        assertThrows(IllegalArgumentException.class, () -> Board.fromString("XX"));
+        assertThrows(IllegalArgumentException.class, () -> Board.fromString(""));
+        assertThrows(IllegalArgumentException.class, () -> Board.fromString("XXXXXXXX?"));
+    }
+}
@@ -0,0 +1,61 @@
+package dev.abozhik.model.converter;
+
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSnapshotConverterTest {
+
+    private final GameSnapshotConverter converter = new GameSnapshotConverter();
+
+    @Test
+    void roundTripTest() {
+        //given
+        Game game = new Game(GameStatus.O_WON, "XXO O OX ", GamePlayer.O);
+        game.setId(42L);
+        game.setVersion(7L);
+        game.setAiPlayer(GamePlayer.O);
+        game.setCreationDateTime(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123456789));
+        //when
+        byte[] snapshot = converter.convertToDatabaseColumn(game);
+        Game decoded = converter.convertToEntityAttribute(snapshot);
+        //then
+        assertEquals(38, snapshot.length);
+        assertEquals(game.getId(), decoded.getId());
+        assertEquals(game.getVersion(), decoded.getVersion());
+        assertEquals(game.getCreationDateTime(), decoded.getCreationDateTime());
+        assertEquals(game.getStatus(), decoded.getStatus());
+        assertEquals(game.getCurrentPlayer(), decoded.getCurrentPlayer());
+        assertEquals(game.getAiPlayer(), decoded.getAiPlayer());
+        assertEquals(3, decoded.getBoardSize());
+        assertEquals(3, decoded.getWinLength());
+        assertEquals(6, decoded.getMoveCount());
+        assertEquals(game.getBoard(), decoded.getBoard());
+    }
+
+    @Test
+    void largeBoardWithoutOptionalFieldsTest() {
+        //given
+        Game game = new Game(19, 5);
+        game.setId(1L);
+        //when
+        Game decoded = converter.convertToEntityAttribute(converter.convertToDatabaseColumn(game));
+        //then
+        assertNull(decoded.getVersion());
+        assertNull(decoded.getCreationDateTime());
+        assertNull(decoded.getAiPlayer());
+        assertEquals(19, decoded.getBoardSize());
+        assertEquals(5, decoded.getWinLength());
+        assertArrayEquals(game.getCells(), decoded.getCells());
+    }
+
+    @Test
+    void unknownFormatTest() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(new byte[]{9}));
+    }
+}
@@ -0,0 +1,114 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void rateLimitAllowsBurstPerClientTest() {
+        //given
+        AdmissionControl admissionControl = new AdmissionControl(meterRegistry, true, "", 8, 100, 1, 3, 0, 0, 0, 0);
+        //when
+        for (int i = 0; i < 3; i++) {
+            admissionControl.call("alice", AdmissionControl.Limit.CREATE, () -> 0);
+        }
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () ->
+                admissionControl.call("alice", AdmissionControl.Limit.CREATE, () -> 0));
+        //then other clients and other limits have their own buckets
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(1, admissionControl.call("bob", AdmissionControl.Limit.CREATE, () -> 1));
+        for (int i = 0; i < 100; i++) {
+            admissionControl.call("alice", AdmissionControl.Limit.MOVE, () -> 1);
+        }
+        assertEquals(1.0, meterRegistry.get("game.admission.rejected")
+                .tags("limit", "create", "reason", "rate").counter().count());
+    }
+
+    @Test
+    void concurrencyLimitRejectsInsteadOfQueueingTest() throws Exception {
+        //given
+        AdmissionControl admissionControl = new AdmissionControl(meterRegistry, true, "", 1, 100, 0, 0, 0, 0, 0, 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = executor.submit(() -> admissionControl.call("alice", AdmissionControl.Limit.MOVE, () -> {
+                running.countDown();
+                await(release);
+                return 1;
+            }));
+            running.await();
+            //when
+            assertThrows(TooManyRequestsException.class, () ->
+                    admissionControl.call("bob", AdmissionControl.Limit.MOVE, () -> 2));
+            release.countDown();
+            //then
+            assertEquals(1, slow.get());
+            assertEquals(2, admissionControl.call("bob", AdmissionControl.Limit.MOVE, () -> 2));
+            assertEquals(1.0, meterRegistry.get("game.admission.rejected")
+                    .tags("limit", "move", "reason", "concurrency").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void fullClientMapRejectsNewClientsInsteadOfEvictingTest() {
+        //given
+        AdmissionControl admissionControl = new AdmissionControl(meterRegistry, true, "", 8, 2, 0, 0, 1, 1, 0, 0);
+        admissionControl.call("alice", AdmissionControl.Limit.MOVE, () -> 1);
+        admissionControl.call("bob", AdmissionControl.Limit.MOVE, () -> 1);
+        //when
+        assertThrows(TooManyRequestsException.class, () ->
+                admissionControl.call("carol", AdmissionControl.Limit.MOVE, () -> 1));
+        //then alice keeps her empty bucket
+        assertThrows(TooManyRequestsException.class, () ->
+                admissionControl.call("alice", AdmissionControl.Limit.MOVE, () -> 1));
+        assertEquals(1.0, meterRegistry.get("game.admission.rejected")
+                .tags("limit", "move", "reason", "clients").counter().count());
+        assertEquals(1.0, meterRegistry.get("game.admission.rejected")
+                .tags("limit", "move", "reason", "rate").counter().count());
+    }
+
+    @Test
+    void batchTakesTokenPerMoveTest() {
+        //given
+        AdmissionControl admissionControl = new AdmissionControl(meterRegistry, true, "", 8, 100, 0, 0, 1, 3, 0, 0);
+        admissionControl.admit("alice", AdmissionControl.Limit.MOVE, 2);
+        //when
+        assertThrows(TooManyRequestsException.class, () ->
+                admissionControl.admit("alice", AdmissionControl.Limit.MOVE, 2));
+        // more than the burst is taken from a full bucket, and paid for by waiting
+        admissionControl.admit("bob", AdmissionControl.Limit.MOVE, 5);
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () ->
+                admissionControl.call("bob", AdmissionControl.Limit.MOVE, () -> 1));
+        //then
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1, admissionControl.call("alice", AdmissionControl.Limit.MOVE, () -> 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphaBetaSearchTest {
+
+    private static final int SIZE = 15;
+
+    private final AlphaBetaSearch search = new AlphaBetaSearch(new SimpleMeterRegistry(), 200, 2, 1 << 16);
+
+    @AfterEach
+    void tearDown() {
+        search.destroy();
+    }
+
+    @Test
+    void completesWinningRowTest() {
+        //given X to move with four in a row
+        byte[] cells = board(new int[]{cell(7, 3), cell(7, 4), cell(7, 5), cell(7, 6)}, new int[]{cell(0, 0), cell(0, 14), cell(14, 0), cell(14, 14)});
+        //when
+        int move = search.bestMove(cells, SIZE, 5);
+        //then
+        assertTrue(move == cell(7, 2) || move == cell(7, 7), "move=" + move);
+    }
+
+    @Test
+    void blocksOpenFourTest() {
+        //given O to move, X threatens to complete the diagonal at one end only
+        byte[] cells = board(new int[]{cell(2, 2), cell(3, 3), cell(4, 4), cell(5, 5), cell(10, 0)},
+                new int[]{cell(1, 1), cell(0, 14), cell(14, 0), cell(14, 14)});
+        //when
+        int move = search.bestMove(cells, SIZE, 5);
+        //then
+        assertEquals(cell(6, 6), move);
+    }
+
+    @Test
+    void respectsTimeBudgetTest() {
+        //given
+        byte[] cells = board(new int[]{cell(7, 7), cell(6, 8)}, new int[]{cell(8, 8), cell(7, 8)});
+        //when
+        AlphaBetaSearch.SearchResult result = search.search(cells, SIZE, 5, TimeUnit.MILLISECONDS.toNanos(100), AlphaBetaSearch.MAX_DEPTH);
+        //then
+        assertTrue(result.depth() >= 1);
+        assertTrue(result.nodes() > 0);
+        assertTrue(result.elapsedNanos() < TimeUnit.MILLISECONDS.toNanos(1000), "elapsed=" + result.elapsedNanos());
+        assertFalse(Board.isOccupied(cells, result.move()));
+    }
+
+    @Test
+    void searchesEmptyBoardTest() {
+        assertEquals(cell(7, 7), search.bestMove(Board.empty(SIZE), SIZE, 5));
+    }
+
+    private static byte[] board(int[] x, int[] o) {
+        byte[] cells = Board.empty(SIZE);
+        for (int position : x) {
+            Board.place(cells, position, GamePlayer.X);
+        }
+        for (int position : o) {
+            Board.place(cells, position, GamePlayer.O);
+        }
+        return cells;
+    }
+
+    private static int cell(int row, int column) {
+        return row * SIZE + column;
+    }
+}
@@ -0,0 +1,132 @@
+package dev.abozhik.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GameBroadcasterTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final SimpMessagingTemplate messagingTemplate = Mockito.mock(SimpMessagingTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GameBroadcaster broadcaster = new GameBroadcaster(jsonMapper, messagingTemplate, meterRegistry, 1, 2);
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.destroy();
+    }
+
+    @Test
+    void publishCoalescesPendingUpdatesTest() throws Exception {
+        //given
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await();
+            return null;
+        }).doNothing().when(messagingTemplate).send(eq("/topic/game/1"), any(Message.class));
+        //when
+        publish(1L, 1);
+        sending.await(5, TimeUnit.SECONDS);
+        publish(1L, 2);
+        publish(1L, 3);
+        release.countDown();
+        //then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<byte[]>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, timeout(5000).times(2)).send(eq("/topic/game/1"), captor.capture());
+        List<Message<byte[]>> sent = captor.getAllValues();
+        assertEquals(List.of(1), sequences(sent.get(0)));
+        assertEquals(List.of(2, 3), sequences(sent.get(1)));
+        assertEquals(1.0, meterRegistry.get("game.broadcast.coalesced").counter().count());
+    }
+
+    @Test
+    void publishSendsSnapshotWhenTooFarBehindTest() throws Exception {
+        //given
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await();
+            return null;
+        }).doNothing().when(messagingTemplate).send(eq("/topic/game/3"), any(Message.class));
+        publish(3L, 1);
+        sending.await(5, TimeUnit.SECONDS);
+        //when more than max-deltas moves pile up
+        publish(3L, 2);
+        publish(3L, 3);
+        publish(3L, 4);
+        assertEquals(3.0, meterRegistry.get("game.broadcast.queue.depth").gauge().value());
+        release.countDown();
+        //then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<byte[]>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, timeout(5000).times(2)).send(eq("/topic/game/3"), captor.capture());
+        GameMessage[] snapshot = jsonMapper.readValue(captor.getAllValues().get(1).getPayload(), GameMessage[].class);
+        assertEquals(1, snapshot.length);
+        assertEquals(4, snapshot[0].getSequence());
+        assertNull(snapshot[0].getPosition());
+        assertEquals(3L, snapshot[0].getGame().getId());
+        assertEquals(1.0, meterRegistry.get("game.broadcast.snapshots").counter().count());
+        assertEquals(0.0, meterRegistry.get("game.broadcast.queue.depth").gauge().value());
+    }
+
+    @Test
+    void publishWaitsForCommitTest() {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            publish(2L, 1);
+            //then
+            verify(messagingTemplate, after(200).never()).send(any(String.class), any(Message.class));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(messagingTemplate, timeout(5000)).send(eq("/topic/game/2"), any(Message.class));
+    }
+
+    private void publish(Long id, int sequence) {
+        GameMessage message = new GameMessage();
+        message.setId(id);
+        message.setSequence(sequence);
+        message.setPosition(sequence - 1);
+        message.setPlayer(sequence % 2 == 1 ? GamePlayer.X : GamePlayer.O);
+        Game game = new Game(3, 3);
+        game.setId(id);
+        game.setMoveCount(sequence);
+        broadcaster.publish(message, game);
+    }
+
+    private List<Integer> sequences(Message<byte[]> message) throws Exception {
+        return Arrays.stream(jsonMapper.readValue(message.getPayload(), GameMessage[].class))
+                .map(GameMessage::getSequence)
+                .toList();
+    }
+}
@@ -0,0 +1,78 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMailboxTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void fullMailboxRejectsMoveTest() throws Exception {
+        //given one move running and one waiting on game 1
+        GameMailbox gameMailbox = new GameMailbox(meterRegistry, true, 2, false);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Integer> first = executor.submit(() -> gameMailbox.call(1L, () -> {
+            running.countDown();
+            await(release);
+            return 1;
+        }));
+        running.await();
+        Future<Integer> second = executor.submit(() -> gameMailbox.call(1L, () -> 2));
+        while (meterRegistry.get("game.mailbox.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+        //when
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> gameMailbox.call(1L, () -> 3));
+        //then other games are not affected, and the queue drains
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(4, gameMailbox.call(2L, () -> 4));
+        release.countDown();
+        assertEquals(1, first.get());
+        assertEquals(2, second.get());
+        assertEquals(5, gameMailbox.call(1L, () -> 5));
+        assertEquals(1.0, meterRegistry.get("game.mailbox.rejected").counter().count());
+        executor.shutdown();
+    }
+
+    @Test
+    void batchEntersEveryMailboxTest() {
+        //given
+        GameMailbox gameMailbox = new GameMailbox(meterRegistry, true, 1, false);
+        //when
+        int result = gameMailbox.callAll(Arrays.asList(3L, null, 1L, 3L), () -> {
+            //then the games of the batch are taken, others are free
+            assertThrows(TooManyRequestsException.class, () -> gameMailbox.call(1L, () -> 0));
+            assertThrows(TooManyRequestsException.class, () -> gameMailbox.call(3L, () -> 0));
+            return gameMailbox.call(2L, () -> 7);
+        });
+        assertEquals(7, result);
+        assertEquals(8, gameMailbox.callAll(List.of(1L, 3L), () -> 8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
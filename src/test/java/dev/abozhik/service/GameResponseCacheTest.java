@@ -0,0 +1,42 @@
+package dev.abozhik.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameResponseCacheTest {
+
+    @Test
+    void entriesExpireAfterTtlTest() throws Exception {
+        //given
+        GameResponseCache cache = new GameResponseCache(new SimpleMeterRegistry(), 100, 50, false);
+        AtomicInteger loads = new AtomicInteger();
+        //when
+        cache.get(1L, id -> load(loads));
+        cache.get(1L, id -> load(loads));
+        Thread.sleep(100);
+        GameResponseCache.Entry entry = cache.get(1L, id -> load(loads));
+        //then
+        assertEquals(2, loads.get());
+        assertEquals("2", entry.eTag());
+    }
+
+    @Test
+    void disabledWithBrokerRelayTest() {
+        //given another node may change the game without this one hearing of it
+        GameResponseCache cache = new GameResponseCache(new SimpleMeterRegistry(), 100, 60_000, true);
+        AtomicInteger loads = new AtomicInteger();
+        //when
+        cache.get(1L, id -> load(loads));
+        cache.get(1L, id -> load(loads));
+        //then
+        assertEquals(2, loads.get());
+    }
+
+    private static GameResponseCache.Entry load(AtomicInteger loads) {
+        return new GameResponseCache.Entry(String.valueOf(loads.incrementAndGet()), new byte[0]);
+    }
+}
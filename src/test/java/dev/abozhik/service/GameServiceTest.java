@@ -1,37 +1,41 @@
 package dev.abozhik.service;
 
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.GameMessage;
 import dev.abozhik.model.GamePlayer;
 import dev.abozhik.model.GameStatus;
 import dev.abozhik.model.constants.GameConstants;
 import dev.abozhik.model.entity.Game;
 import dev.abozhik.repository.GameRepository;
+import dev.abozhik.repository.GameSnapshotRepository;
+import dev.abozhik.repository.MoveEventRepository;
 import dev.abozhik.repository.ProcessedRequestRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
-import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @SpringBootTest
@@ -45,9 +49,27 @@ class GameServiceTest {
     private GameRepository gameRepository;
 
 
-    @Autowired
+    @MockitoSpyBean
     private ProcessedRequestRepository processedRequestRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private GameMetrics gameMetrics;
+
+    @MockitoSpyBean
+    private GameBroadcaster gameBroadcaster;
+
+    @Autowired
+    private MoveEventRepository moveEventRepository;
+
+    @Autowired
+    private GameSnapshotRepository gameSnapshotRepository;
+
+    @Autowired
+    private GameMailbox gameMailbox;
+
 
     @Test
     void createGameTest() {
@@ -107,6 +129,141 @@ class GameServiceTest {
         assertEquals(GameStatus.DRAW, finalGame.getStatus());
     }
 
+    @Test
+    void makeMoveOnLargeBoardTest() {
+        //given
+        Game game = gameService.createGame(15, 5, null);
+        Long gameId = game.getId();
+        //when
+        Game current = game;
+        for (int column = 0; column < 5; column++) {
+            current = gameService.makeMove(gameId, 7 * 15 + column, GamePlayer.X, UUID.randomUUID().toString());
+            if (column < 4) {
+                current = gameService.makeMove(gameId, 224 - column, GamePlayer.O, UUID.randomUUID().toString());
+            }
+        }
+        //then
+        assertEquals(GameStatus.X_WON, current.getStatus());
+        Game saved = gameRepository.findById(gameId).orElseThrow();
+        assertEquals(225, saved.getBoard().length());
+        assertEquals(9, saved.getMoveCount());
+        assertEquals(5, saved.getWinLength());
+    }
+
+    @Test
+    void playAgainstAiTest() {
+        //given
+        Game game = gameService.createGame(3, 3, GamePlayer.X);
+        Long gameId = game.getId();
+        assertEquals(1, game.getMoveCount());
+        //when
+        Game current = game;
+        while (current.getStatus() == GameStatus.IN_PROGRESS) {
+            int position = current.getBoard().indexOf(' ');
+            current = gameService.makeMove(gameId, position, GamePlayer.O, UUID.randomUUID().toString());
+        }
+        //then
+        assertNotEquals(GameStatus.O_WON, current.getStatus());
+        assertEquals(current.getBoard(), gameRepository.findById(gameId).orElseThrow().getBoard());
+    }
+
+    @Test
+    void playAgainstAiOnLargeBoardTest() {
+        //given
+        Game game = gameService.createGame(15, 5, GamePlayer.O);
+        //when
+        Game afterMove = gameService.makeMove(game.getId(), 7 * 15 + 7, GamePlayer.X, UUID.randomUUID().toString());
+        //then
+        assertEquals(2, afterMove.getMoveCount());
+        assertEquals(GamePlayer.X, afterMove.getCurrentPlayer());
+        assertEquals(2, gameRepository.findById(game.getId()).orElseThrow().getMoveCount());
+    }
+
+    @Test
+    void replayGameFromSnapshotAndEventsTest() {
+        //given
+        Game game = gameService.createGame(15, 5, null);
+        List<String> boards = new ArrayList<>();
+        boards.add(game.getBoard());
+        for (int position = 0; position < 40; position++) {
+            GamePlayer player = position % 2 == 0 ? GamePlayer.X : GamePlayer.O;
+            boards.add(gameService.makeMove(game.getId(), position, player, UUID.randomUUID().toString()).getBoard());
+        }
+        //when
+        Game replayed = gameService.replayGame(game.getId(), null);
+        Game fromSnapshot = gameService.replayGame(game.getId(), 35);
+        Game fromStart = gameService.replayGame(game.getId(), 7);
+        //then
+        assertEquals(1, gameSnapshotRepository.count());
+        assertEquals(40, moveEventRepository.count());
+        assertEquals(boards.get(40), replayed.getBoard());
+        assertEquals(GamePlayer.X, replayed.getCurrentPlayer());
+        assertEquals(boards.get(35), fromSnapshot.getBoard());
+        assertEquals(35, fromSnapshot.getMoveCount());
+        assertEquals(GamePlayer.O, fromSnapshot.getCurrentPlayer());
+        assertEquals(boards.get(7), fromStart.getBoard());
+        assertThrows(GameException.class, () -> gameService.replayGame(game.getId(), 41));
+    }
+
+    @Test
+    void replayGameAgainstAiTest() {
+        //given
+        Game game = gameService.createGame(3, 3, GamePlayer.X);
+        Game current = gameService.makeMove(game.getId(), game.getBoard().indexOf(' '), GamePlayer.O, UUID.randomUUID().toString());
+        //when
+        Game replayed = gameService.replayGame(game.getId(), null);
+        //then
+        assertEquals(3, moveEventRepository.count());
+        assertEquals(current.getBoard(), replayed.getBoard());
+        assertEquals(current.getStatus(), replayed.getStatus());
+        assertEquals(GamePlayer.X, replayed.getAiPlayer());
+    }
+
+    @Test
+    void publishMoveDeltasTest() {
+        //given
+        Game game = gameService.createGame(3, 3, GamePlayer.O);
+        gameService.makeMove(game.getId(), 0, GamePlayer.X, null);
+        ArgumentCaptor<GameMessage> captor = ArgumentCaptor.forClass(GameMessage.class);
+        //when
+        gameService.makeMove(game.getId(), 8, GamePlayer.X, null);
+        //then
+        verify(gameBroadcaster, Mockito.times(4)).publish(captor.capture(), any());
+        List<GameMessage> messages = captor.getAllValues();
+        assertEquals(List.of(1, 2, 3, 4), messages.stream().map(GameMessage::getSequence).toList());
+        assertEquals(8, messages.get(2).getPosition());
+        assertEquals(GamePlayer.X, messages.get(2).getPlayer());
+        assertEquals(GamePlayer.O, messages.get(3).getPlayer());
+        assertNull(messages.get(3).getStatus());
+    }
+
+    @Test
+    void publishFinalStatusTest() {
+        //given
+        Game game = gameService.createGame();
+        Long gameId = game.getId();
+        gameService.makeMove(gameId, 0, GamePlayer.X, null);
+        gameService.makeMove(gameId, 3, GamePlayer.O, null);
+        gameService.makeMove(gameId, 1, GamePlayer.X, null);
+        gameService.makeMove(gameId, 4, GamePlayer.O, null);
+        ArgumentCaptor<GameMessage> captor = ArgumentCaptor.forClass(GameMessage.class);
+        //when
+        gameService.makeMove(gameId, 2, GamePlayer.X, null);
+        //then
+        verify(gameBroadcaster, Mockito.times(5)).publish(captor.capture(), any());
+        GameMessage last = captor.getValue();
+        assertEquals(5, last.getSequence());
+        assertEquals(GameStatus.X_WON, last.getStatus());
+        assertNull(captor.getAllValues().get(3).getStatus());
+    }
+
+    @Test
+    void createGameWithInvalidSizeTest() {
+        assertThrows(GameException.class, () -> gameService.createGame(GameConstants.MAX_BOARD_SIZE + 1, 5, null));
+        assertThrows(GameException.class, () -> gameService.createGame(15, 16, null));
+        assertThrows(GameException.class, () -> gameService.createGame(15, 2, null));
+    }
+
     @Test
     void idempotencyTest() {
         //given
@@ -122,43 +279,75 @@ class GameServiceTest {
     }
 
     @Test
-    void concurrencyAccessWithOptimisticLockingTest() throws Exception {
+    void idempotencyServedFromCacheTest() {
         //given
-        Game game = gameRepository.save(new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X));
-        Long gameId = game.getId();
-
-        CountDownLatch latch = new CountDownLatch(2);
-        AtomicInteger count = new AtomicInteger(0);
-
-        Answer<?> defaultAnswer = Mockito.mockingDetails(gameRepository)
-                .getMockCreationSettings()
-                .getDefaultAnswer();
-
-        Mockito.doAnswer(invocation -> {
-            latch.countDown();
-            latch.await();
-            if (count.incrementAndGet() >= 2) {
-                return defaultAnswer.answer(invocation);
-            }
-            return Optional.of(game);
-        }).when(gameRepository).findById(any());
-
+        Game game = gameService.createGame();
+        String requestId = UUID.randomUUID().toString();
+        gameService.makeMove(game.getId(), 0, GamePlayer.X, requestId);
+        Mockito.clearInvocations(processedRequestRepository);
         //when
-        ExecutorService executor = Executors.newFixedThreadPool(2);
-        Future<?> thread1 = executor.submit(() -> {
-            gameService.makeMove(gameId, 0, null, UUID.randomUUID().toString());
-        });
-        Future<?> thread2 = executor.submit(() -> {
-            gameService.makeMove(gameId, 1, null, UUID.randomUUID().toString());
-        });
+        Game replay = gameService.makeMove(game.getId(), 0, GamePlayer.X, requestId);
+        //then
+        assertEquals("X        ", replay.getBoard());
+        verify(processedRequestRepository, never()).findById(any());
+        verify(processedRequestRepository, never()).existsById(any());
+    }
 
-        thread1.get();
-        thread2.get();
+    @Test
+    void makeMoveMetricsByOutcomeTest() {
+        //given
+        Game game = gameService.createGame();
+        String requestId = UUID.randomUUID().toString();
+        //when
+        gameService.makeMove(game.getId(), 0, GamePlayer.X, requestId);
+        gameService.makeMove(game.getId(), 0, GamePlayer.X, requestId);
+        assertThrows(RuntimeException.class,
+                () -> gameService.makeMove(game.getId(), 0, GamePlayer.O, UUID.randomUUID().toString()));
+        //then
+        assertEquals(1, meterRegistry.get("game.move").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("game.move").tag("outcome", "duplicate").timer().count());
+        assertEquals(1, meterRegistry.get("game.move").tag("outcome", "validation_error").timer().count());
+        assertEquals(1, meterRegistry.get("game.create").timer().count());
+    }
 
+    @Test
+    void activeGamesGaugeDoesNotQueryTest() {
+        //given
+        gameService.createGame();
+        gameMetrics.refreshActiveGames();
+        Mockito.clearInvocations(gameRepository);
+        //when
+        double active = meterRegistry.get("game.active").gauge().value();
         //then
-        verify(gameService, atLeast(3)).makeMove(eq(gameId), anyInt(), any(), anyString());
+        assertEquals(1.0, active);
+        verify(gameRepository, never()).countByStatus(any());
     }
 
+    @Test
+    void mailboxSerializesConcurrentMovesTest() throws Exception {
+        //given 16 clients racing on one game, on cells that are never next to each other
+        Long gameId = gameService.createGame(15, 5, null).getId();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<Game>> moves = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int position = (i / 8) * 30 + (i % 8) * 2;
+            moves.add(executor.submit(() -> {
+                start.await();
+                return gameMailbox.call(gameId, () -> gameService.makeMove(gameId, position, null, UUID.randomUUID().toString()));
+            }));
+        }
+        //when
+        start.countDown();
+        for (Future<Game> move : moves) {
+            move.get();
+        }
+        executor.shutdown();
+        //then
+        assertEquals(16, gameService.getGame(gameId).getMoveCount());
+        assertNull(meterRegistry.find("game.move.retries").counter());
+        assertEquals(16, meterRegistry.get("game.mailbox.wait").timer().count());
+    }
 
     @Test
     void makeMoveWhenGameNotInProgressTest() {
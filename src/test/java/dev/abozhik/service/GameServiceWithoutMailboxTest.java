@@ -0,0 +1,91 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.constants.GameConstants;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.repository.GameRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Concurrent moves with the mailbox switched off, as on a node sharing games with others: they race on the
+ * version check and the loser is retried.
+ */
+@SpringBootTest(properties = "game.move.mailbox.enabled=false")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class GameServiceWithoutMailboxTest {
+
+    @MockitoSpyBean
+    private GameService gameService;
+
+    @MockitoSpyBean
+    private GameRepository gameRepository;
+
+    @Autowired
+    private GameMailbox gameMailbox;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrencyAccessWithOptimisticLockingTest() throws Exception {
+        //given
+        Game game = gameRepository.save(new Game(GameStatus.IN_PROGRESS, GameConstants.EMPTY_BOARD, GamePlayer.X));
+        Long gameId = game.getId();
+
+        CountDownLatch latch = new CountDownLatch(2);
+        AtomicInteger count = new AtomicInteger(0);
+
+        Answer<?> defaultAnswer = Mockito.mockingDetails(gameRepository)
+                .getMockCreationSettings()
+                .getDefaultAnswer();
+
+        // both threads read version 0 before either of them goes on, so one of them must conflict
+        Mockito.doAnswer(invocation -> {
+            Object result = count.incrementAndGet() >= 2 ? defaultAnswer.answer(invocation) : Optional.of(game);
+            latch.countDown();
+            latch.await();
+            return result;
+        }).when(gameRepository).findById(any());
+
+        //when the moves go through the mailbox the way controllers send them
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Game> thread1 = executor.submit(() ->
+                gameMailbox.call(gameId, () -> gameService.makeMove(gameId, 0, null, UUID.randomUUID().toString())));
+        Future<Game> thread2 = executor.submit(() ->
+                gameMailbox.call(gameId, () -> gameService.makeMove(gameId, 1, null, UUID.randomUUID().toString())));
+
+        thread1.get();
+        thread2.get();
+        executor.shutdown();
+
+        //then
+        verify(gameService, atLeast(3)).makeMove(eq(gameId), anyInt(), any(), anyString());
+        assertTrue(meterRegistry.get("game.move.retries").counter().count() >= 1);
+        assertEquals(0, meterRegistry.get("game.mailbox.wait").timer().count());
+    }
+}
@@ -0,0 +1,89 @@
+package dev.abozhik.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PairingQueueTest {
+
+    private final PairingQueue<String, String> queue = new PairingQueue<>();
+
+    @Test
+    void pairsTicketsWithSameKeyTest() {
+        assertNull(queue.offer("3x3", "a"));
+        assertNull(queue.offer("15x15", "b"));
+        assertEquals("a", queue.offer("3x3", "c"));
+        assertNull(queue.offer("3x3", "d"));
+        assertEquals("b", queue.offer("15x15", "e"));
+    }
+
+    @Test
+    void cancelOnlyWaitingTicketTest() {
+        assertFalse(queue.cancel("3x3", "a"));
+        assertNull(queue.offer("3x3", "a"));
+        assertTrue(queue.cancel("3x3", "a"));
+        assertFalse(queue.cancel("3x3", "a"));
+        assertNull(queue.offer("3x3", "b"));
+        assertEquals("b", queue.offer("3x3", "c"));
+        assertFalse(queue.cancel("3x3", "b"));
+    }
+
+    @Test
+    void unpairableTicketIsReturnedAndWaitingOneStaysTest() {
+        assertNull(queue.offer("3x3", "alice", (waiting, offered) -> !waiting.equals(offered)));
+        assertEquals("alice", queue.offer("3x3", "alice", (waiting, offered) -> !waiting.equals(offered)));
+        assertEquals("alice", queue.offer("3x3", "bob", (waiting, offered) -> !waiting.equals(offered)));
+        assertFalse(queue.cancel("3x3", "alice"));
+    }
+
+    @Test
+    void concurrentOffersPairEveryTicketOnceTest() throws Exception {
+        //given
+        int threads = 8;
+        int ticketsPerThread = 20_000;
+        int keys = 4;
+        Set<Integer> paired = ConcurrentHashMap.newKeySet();
+        AtomicInteger pairs = new AtomicInteger();
+        PairingQueue<Integer, Integer> numbers = new PairingQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        //when
+        for (int t = 0; t < threads; t++) {
+            int first = t * ticketsPerThread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int ticket = first; ticket < first + ticketsPerThread; ticket++) {
+                    Integer partner = numbers.offer(ticket % keys, ticket);
+                    if (partner != null) {
+                        assertEquals(ticket % keys, partner % keys);
+                        assertTrue(paired.add(partner));
+                        assertTrue(paired.add(ticket));
+                        pairs.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        //then every key is left with an even count of offers, so nobody waits
+        assertEquals(threads * ticketsPerThread / 2, pairs.get());
+        for (int key = 0; key < keys; key++) {
+            assertNull(numbers.offer(key, -1));
+        }
+    }
+}
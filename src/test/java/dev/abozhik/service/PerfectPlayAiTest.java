@@ -0,0 +1,87 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.Board;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerfectPlayAiTest {
+
+    private PerfectPlayAi ai;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ai = new PerfectPlayAi(new SimpleMeterRegistry(), "");
+    }
+
+    @Test
+    void emptyBoardIsDrawTest() {
+        assertEquals(0, ai.score(Board.empty(3)));
+        assertTrue(ai.entryCount() < 765);
+    }
+
+    @Test
+    void takesWinAndBlocksTest() {
+        // X to move wins at 2
+        assertEquals(2, ai.bestMove(Board.fromString("XX OO    ")));
+        // O to move must block at 6
+        assertEquals(6, ai.bestMove(Board.fromString("X  X    O")));
+        // same position mirrored: block at 8
+        assertEquals(8, ai.bestMove(Board.fromString("  X  XO  ")));
+    }
+
+    @Test
+    void neverLosesTest() {
+        for (GamePlayer aiPlayer : GamePlayer.values()) {
+            Game game = new Game(3, 3);
+            game.setAiPlayer(aiPlayer);
+            respond(game);
+            assertNeverLoses(game, aiPlayer);
+        }
+    }
+
+    @Test
+    void tableFileRoundTripTest(@TempDir Path directory) throws Exception {
+        //given
+        Path file = directory.resolve("perfect-play.bin");
+        //when
+        PerfectPlayAi written = new PerfectPlayAi(new SimpleMeterRegistry(), file.toString());
+        PerfectPlayAi loaded = new PerfectPlayAi(new SimpleMeterRegistry(), file.toString());
+        //then
+        assertTrue(Files.size(file) < 4096);
+        assertEquals(ai.entryCount(), written.entryCount());
+        assertEquals(ai.entryCount(), loaded.entryCount());
+        byte[] cells = Board.fromString("X   O    ");
+        assertEquals(ai.bestMove(cells), loaded.bestMove(cells));
+    }
+
+    private void assertNeverLoses(Game game, GamePlayer aiPlayer) {
+        if (game.getStatus() != GameStatus.IN_PROGRESS) {
+            assertNotEquals(aiPlayer == GamePlayer.X ? GameStatus.O_WON : GameStatus.X_WON, game.getStatus(), game.getBoard());
+            return;
+        }
+        for (int position = 0; position < 9; position++) {
+            if (!Board.isOccupied(game.getCells(), position)) {
+                Game next = Game.copyOf(game);
+                GameRules.applyMove(next, position);
+                respond(next);
+                assertNeverLoses(next, aiPlayer);
+            }
+        }
+    }
+
+    private void respond(Game game) {
+        if (game.getStatus() == GameStatus.IN_PROGRESS && game.getCurrentPlayer() == game.getAiPlayer()) {
+            GameRules.applyMove(game, ai.bestMove(game.getCells()));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dev.abozhik.service;
+
+import dev.abozhik.repository.ProcessedRequestRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "game.processed-requests.cleanup-batch-size=2",
+        "game.processed-requests.cleanup-batch-pause=0",
+        "game.processed-requests.cleanup-interval=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ProcessedRequestCleanupServiceTest {
+
+    @Autowired
+    private ProcessedRequestCleanupService cleanupService;
+
+    @Autowired
+    private ProcessedRequestRepository processedRequestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void cleanupDeletesOnlyExpiredRowsInBatchesTest() {
+        //given
+        LocalDateTime expired = LocalDateTime.now().minusDays(2);
+        transactionTemplate.executeWithoutResult(status -> {
+            // the in-memory database outlives the contexts of earlier test classes
+            jdbcTemplate.update("delete from processed_request");
+            for (int i = 0; i < 5; i++) {
+                insert("old-" + i, expired.plusMinutes(i));
+            }
+            insert("fresh", LocalDateTime.now());
+        });
+        //when
+        cleanupService.cleanupOldProcessedRequests();
+        //then
+        assertEquals(1, processedRequestRepository.count());
+        assertTrue(processedRequestRepository.existsById("fresh"));
+        assertEquals(5.0, meterRegistry.get("game.processed-requests.purged").counter().count());
+        assertEquals(3, meterRegistry.get("game.processed-requests.purge.batch").timer().count());
+    }
+
+    private void insert(String requestId, LocalDateTime creationDateTime) {
+        jdbcTemplate.update("insert into processed_request (request_id, response, creation_date_time) values (?, ?, ?)",
+                requestId, new byte[1], Timestamp.valueOf(creationDateTime));
+    }
+}
@@ -0,0 +1,115 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.GameException;
+import dev.abozhik.model.SimulationRequest;
+import dev.abozhik.model.SimulationResult;
+import dev.abozhik.model.SimulationStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorTest {
+
+    private Simulator simulator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        simulator = new Simulator(new PerfectPlayAi(meterRegistry, ""), meterRegistry, 4, 64, 10_000_000, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulator.destroy();
+    }
+
+    @Test
+    void perfectPlayNeverLosesTest() {
+        //when
+        SimulationResult asX = simulator.simulate(request(SimulationStrategy.PERFECT, SimulationStrategy.RANDOM, 3, 3, 10_000, 1L));
+        SimulationResult asO = simulator.simulate(request(SimulationStrategy.HEURISTIC, SimulationStrategy.PERFECT, 3, 3, 10_000, 1L));
+        //then
+        assertEquals(10_000, asX.getWinsX() + asX.getWinsO() + asX.getDraws());
+        assertEquals(0, asX.getWinsO());
+        assertTrue(asX.getWinsX() > 9_000);
+        assertEquals(0, asO.getWinsX());
+        assertTrue(asO.getMoves() >= 5 * 10_000L);
+    }
+
+    @Test
+    void sameSeedReplaysSameGamesTest() {
+        //given
+        SimulationRequest request = request(SimulationStrategy.HEURISTIC, SimulationStrategy.RANDOM, 15, 5, 5_000, 42L);
+        //when
+        SimulationResult first = simulator.simulate(request);
+        SimulationResult second = simulator.simulate(request);
+        //then
+        assertEquals(first.getWinsX(), second.getWinsX());
+        assertEquals(first.getWinsO(), second.getWinsO());
+        assertEquals(first.getMoves(), second.getMoves());
+        assertTrue(first.getWinsX() > first.getWinsO());
+    }
+
+    @Test
+    void tournamentExportsOneRowPerPairingTest() {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //when
+        simulator.exportCsv(simulator.tournament(3, 3, 1_000, 7L), out);
+        //then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(10, lines.length);
+        assertTrue(lines[0].startsWith("x,o,size,win_length"));
+        assertTrue(lines[9].startsWith("PERFECT,PERFECT,3,3,7,1000,0,0,1000,9000,"));
+        assertEquals(4, simulator.tournament(15, 5, 1_000, null).size());
+    }
+
+    @Test
+    void tournamentIsCappedAsAWholeTest() {
+        //given 10M cells on 3x3 are 1.1M games, shared by 9 pairings
+        assertEquals(9, simulator.tournament(3, 3, 123_456, null).size());
+        //when
+        GameException e = assertThrows(GameException.class, () -> simulator.tournament(3, 3, 200_000, null));
+        //then
+        assertEquals("Invalid number of games. Games must be between 1 and 123456 per pairing on this board", e.getMessage());
+    }
+
+    @Test
+    void perfectPlayOnlyOnClassicBoardTest() {
+        GameException e = assertThrows(GameException.class, () ->
+                simulator.simulate(request(SimulationStrategy.PERFECT, SimulationStrategy.RANDOM, 15, 5, 10, null)));
+        assertEquals("Perfect play is only available on the 3x3 board", e.getMessage());
+        assertThrows(GameException.class, () ->
+                simulator.simulate(request(SimulationStrategy.RANDOM, SimulationStrategy.RANDOM, 3, 3, 2_000_000, null)));
+    }
+
+    @Test
+    void simulationTimesOutTest() throws Exception {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Simulator slow = new Simulator(new PerfectPlayAi(meterRegistry, ""), meterRegistry, 2, 64, 10_000_000, 1);
+        //when
+        GameException e = assertThrows(GameException.class, () ->
+                slow.simulate(request(SimulationStrategy.HEURISTIC, SimulationStrategy.HEURISTIC, 15, 5, 40_000, 1L)));
+        slow.destroy();
+        //then
+        assertEquals("Simulation took longer than 1 ms", e.getMessage());
+    }
+
+    private SimulationRequest request(SimulationStrategy x, SimulationStrategy o, int size, int winLength, long games, Long seed) {
+        SimulationRequest request = new SimulationRequest();
+        request.setX(x);
+        request.setO(o);
+        request.setSize(size);
+        request.setWinLength(winLength);
+        request.setGames(games);
+        request.setSeed(seed);
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package dev.abozhik.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void firesAtDeadlineTest() {
+        //given
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 1_000);
+        wheel.add("soon", 1_035);
+        wheel.add("late", 1_500);
+        wheel.add("overdue", 900);
+        List<String> fired = new ArrayList<>();
+        //when then
+        wheel.advance(1_010, fired::add);
+        assertEquals(List.of("overdue"), fired);
+        wheel.advance(1_039, fired::add);
+        assertEquals(List.of("overdue"), fired);
+        wheel.advance(1_040, fired::add);
+        assertEquals(List.of("overdue", "soon"), fired);
+        wheel.advance(1_499, fired::add);
+        assertEquals(1, wheel.size());
+        wheel.advance(1_500, fired::add);
+        assertEquals(List.of("overdue", "soon", "late"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesAcrossLevelsTest() {
+        //given deadlines on every level, added while the wheel advances
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0);
+        long now = 0;
+        int added = 0;
+        List<long[]> fired = new ArrayList<>();
+        //when
+        for (int step = 0; step < 20_000; step++) {
+            long deadline = now + (long) Math.pow(10, 1 + random.nextInt(7)) + random.nextInt(1000);
+            wheel.add(deadline, deadline);
+            added++;
+            now += random.nextInt(3 * (int) TICK);
+            long at = now;
+            wheel.advance(at, deadlineFired -> fired.add(new long[]{deadlineFired, at}));
+        }
+        long end = now + 100_000_000;
+        for (long at = now; at <= end; at += 1_000) {
+            long time = at;
+            wheel.advance(time, deadlineFired -> fired.add(new long[]{deadlineFired, time}));
+        }
+        //then every deadline fired once, never early and within the advance step
+        assertEquals(added, fired.size());
+        assertEquals(0, wheel.size());
+        for (long[] event : fired) {
+            assertTrue(event[1] >= event[0], "fired early: " + event[0] + " at " + event[1]);
+            assertTrue(event[1] - event[0] < 1_000 + TICK, "fired late: " + event[0] + " at " + event[1]);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.abozhik.service;
+
+import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.repository.GameRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "game.turn.timeout=500",
+        "game.turn.tick=20"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class TurnTimeoutReaperTest {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @MockitoSpyBean
+    private GameBroadcaster gameBroadcaster;
+
+    @Test
+    void idleGameIsForfeitedTest() throws Exception {
+        //given
+        Long gameId = gameService.createGame().getId();
+        gameService.makeMove(gameId, 4, GamePlayer.X, UUID.randomUUID().toString());
+        //when O does not move
+        Game game = awaitFinished(gameId);
+        //then
+        assertEquals(GameStatus.X_WON, game.getStatus());
+        assertEquals(1, game.getMoveCount());
+        ArgumentCaptor<GameMessage> messages = ArgumentCaptor.forClass(GameMessage.class);
+        verify(gameBroadcaster, atLeastOnce()).publish(messages.capture(), any());
+        GameMessage forfeit = messages.getValue();
+        assertEquals(gameId, forfeit.getId());
+        assertEquals(1, forfeit.getSequence());
+        assertNull(forfeit.getPosition());
+        assertEquals(GameStatus.X_WON, forfeit.getStatus());
+    }
+
+    @Test
+    void movesRestartTheTurnTimerTest() throws Exception {
+        //given
+        Long gameId = gameService.createGame(15, 5, null).getId();
+        //when both sides keep moving within the timeout for longer than the timeout
+        for (int move = 0; move < 6; move++) {
+            Thread.sleep(150);
+            gameService.makeMove(gameId, move, null, UUID.randomUUID().toString());
+        }
+        //then
+        assertEquals(GameStatus.IN_PROGRESS, gameRepository.findById(gameId).orElseThrow().getStatus());
+        assertEquals(GameStatus.O_WON, awaitFinished(gameId).getStatus());
+    }
+
+    private Game awaitFinished(Long gameId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            Game game = gameRepository.findById(gameId).orElseThrow();
+            if (game.getStatus() != GameStatus.IN_PROGRESS) {
+                return game;
+            }
+            Thread.sleep(20);
+        }
+        fail("game " + gameId + " was not forfeited");
+        return null;
+    }
+}
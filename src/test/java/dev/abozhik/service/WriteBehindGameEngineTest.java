@@ -0,0 +1,194 @@
+package dev.abozhik.service;
+
+import dev.abozhik.exception.TooManyRequestsException;
+import dev.abozhik.model.GameMessage;
+import dev.abozhik.model.GamePlayer;
+import dev.abozhik.model.GameStatus;
+import dev.abozhik.model.entity.Game;
+import dev.abozhik.repository.GameRepository;
+import dev.abozhik.repository.ProcessedRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "game.engine.write-behind.enabled=true",
+        "game.engine.write-behind.shards=2",
+        "game.engine.write-behind.flush-interval=3600000",
+        "game.engine.write-behind.max-backoff=0"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class WriteBehindGameEngineTest {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private WriteBehindGameEngine engine;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @MockitoSpyBean
+    private ProcessedRequestRepository processedRequestRepository;
+
+    @MockitoSpyBean
+    private GameBroadcaster gameBroadcaster;
+
+    @Test
+    void makeMoveIsFlushedInBatchTest() {
+        //given
+        Game game = gameService.createGame();
+        Long gameId = game.getId();
+        String requestId = UUID.randomUUID().toString();
+        //when
+        gameService.makeMove(gameId, 0, GamePlayer.X, requestId);
+        Game updated = gameService.makeMove(gameId, 4, GamePlayer.O, UUID.randomUUID().toString());
+        //then
+        assertEquals("X   O    ", updated.getBoard());
+        assertEquals("X   O    ", gameService.getGame(gameId).getBoard());
+        assertEquals("         ", gameRepository.findById(gameId).orElseThrow().getBoard());
+        assertFalse(processedRequestRepository.existsById(requestId));
+
+        engine.flush();
+
+        assertEquals("X   O    ", gameRepository.findById(gameId).orElseThrow().getBoard());
+        assertTrue(processedRequestRepository.existsById(requestId));
+    }
+
+    @Test
+    void forfeitIdleGameInMemoryTest() {
+        //given
+        Long gameId = gameService.createGame().getId();
+        gameService.makeMove(gameId, 0, GamePlayer.X, UUID.randomUUID().toString());
+        //when
+        List<Long> stale = gameService.forfeitIdleGames(Map.of(gameId, 0));
+        List<Long> forfeited = gameService.forfeitIdleGames(Map.of(gameId, 1));
+        //then
+        assertTrue(stale.isEmpty());
+        assertEquals(List.of(gameId), forfeited);
+        assertEquals(GameStatus.X_WON, gameService.getGame(gameId).getStatus());
+        assertEquals(GameStatus.IN_PROGRESS, gameRepository.findById(gameId).orElseThrow().getStatus());
+
+        engine.flush();
+
+        assertEquals(GameStatus.X_WON, gameRepository.findById(gameId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void idempotencyBeforeFlushTest() {
+        //given
+        Game game = gameService.createGame();
+        String requestId = UUID.randomUUID().toString();
+        //when
+        Game firstCall = gameService.makeMove(game.getId(), 0, GamePlayer.X, requestId);
+        Game secondCall = gameService.makeMove(game.getId(), 0, GamePlayer.O, requestId);
+        //then
+        assertEquals(firstCall.getBoard(), secondCall.getBoard());
+        assertEquals(GamePlayer.O, gameService.getGame(game.getId()).getCurrentPlayer());
+    }
+
+    @Test
+    void aiReplyIsPlayedOnTheShardTest() {
+        //given
+        Long gameId = gameService.createGame(3, 3, GamePlayer.O).getId();
+        String requestId = UUID.randomUUID().toString();
+        //when
+        Game afterMove = gameService.makeMove(gameId, 4, GamePlayer.X, requestId);
+        Game replay = gameService.makeMove(gameId, 4, GamePlayer.X, requestId);
+        //then
+        assertEquals(2, afterMove.getMoveCount());
+        assertEquals(GamePlayer.X, afterMove.getCurrentPlayer());
+        assertEquals(afterMove.getBoard(), replay.getBoard());
+        assertEquals(afterMove.getBoard(), gameService.getGame(gameId).getBoard());
+
+        engine.flush();
+
+        assertEquals(afterMove.getBoard(), gameRepository.findById(gameId).orElseThrow().getBoard());
+    }
+
+    @Test
+    void subsequentFlushesKeepVersionInSyncTest() {
+        //given
+        Game game = gameService.createGame();
+        Long gameId = game.getId();
+        //when
+        gameService.makeMove(gameId, 0, GamePlayer.X, UUID.randomUUID().toString());
+        engine.flush();
+        gameService.makeMove(gameId, 3, GamePlayer.O, UUID.randomUUID().toString());
+        gameService.makeMove(gameId, 1, GamePlayer.X, UUID.randomUUID().toString());
+        gameService.makeMove(gameId, 4, GamePlayer.O, UUID.randomUUID().toString());
+        engine.flush();
+        Game finalGame = gameService.makeMove(gameId, 2, GamePlayer.X, UUID.randomUUID().toString());
+        engine.flush();
+        //then
+        assertEquals(GameStatus.X_WON, finalGame.getStatus());
+        assertEquals(GameStatus.X_WON, gameRepository.findById(gameId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void versionConflictDiscardsUnsavedMovesTest() {
+        //given
+        Long gameId = gameService.createGame().getId();
+        String requestId = UUID.randomUUID().toString();
+        gameService.makeMove(gameId, 0, GamePlayer.X, requestId);
+        Game changedElsewhere = gameRepository.findById(gameId).orElseThrow();
+        changedElsewhere.setBoard("    X    ");
+        changedElsewhere.setCurrentPlayer(GamePlayer.O);
+        gameRepository.save(changedElsewhere);
+        //when
+        engine.flush();
+        //then the game is read again and the request is applied anew
+        assertEquals("    X    ", gameService.getGame(gameId).getBoard());
+        assertFalse(processedRequestRepository.existsById(requestId));
+        ArgumentCaptor<GameMessage> messages = ArgumentCaptor.forClass(GameMessage.class);
+        verify(gameBroadcaster, atLeastOnce()).publish(messages.capture(), any());
+        GameMessage resync = messages.getValue();
+        assertEquals(1, resync.getSequence());
+        assertEquals("    X    ", resync.getGame().getBoard());
+        assertEquals("O   X    ", gameService.makeMove(gameId, 0, GamePlayer.O, requestId).getBoard());
+
+        engine.flush();
+
+        assertEquals("O   X    ", gameRepository.findById(gameId).orElseThrow().getBoard());
+    }
+
+    @Test
+    void failedFlushKeepsMovesAndRejectsNewOnesTest() {
+        //given
+        Long gameId = gameService.createGame().getId();
+        String requestId = UUID.randomUUID().toString();
+        gameService.makeMove(gameId, 0, GamePlayer.X, requestId);
+        doThrow(new DataAccessResourceFailureException("Database is down")).when(processedRequestRepository).saveAll(anyIterable());
+        //when
+        engine.flush();
+        reset(processedRequestRepository);
+        //then the move is kept, and no move is acknowledged on top of it until it is saved
+        assertEquals("         ", gameRepository.findById(gameId).orElseThrow().getBoard());
+        assertEquals("X        ", gameService.getGame(gameId).getBoard());
+        assertThrows(TooManyRequestsException.class, () ->
+                gameService.makeMove(gameId, 4, GamePlayer.O, UUID.randomUUID().toString()));
+
+        engine.flush();
+
+        assertEquals("X        ", gameRepository.findById(gameId).orElseThrow().getBoard());
+        assertTrue(processedRequestRepository.existsById(requestId));
+        assertEquals("X   O    ", gameService.makeMove(gameId, 4, GamePlayer.O, UUID.randomUUID().toString()).getBoard());
+    }
+}